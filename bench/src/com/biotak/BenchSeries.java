@@ -0,0 +1,83 @@
+package com.biotak;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Array-backed stand-in for a MotiveWave DataSeries
+ * سری داده ساختگی برای بنچمارک
+ *
+ * Holds a seeded random-walk close column of one-minute bars and, as
+ * {@link RSIPipeline.Series}, one output column per value the study exports,
+ * allocated on first write, so benchmarks measure the study code rather than
+ * the platform. Every price of a bar is its close. The series has no symbol,
+ * so the pipeline uses neither shared columns nor checkpoints.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class BenchSeries implements RSIPipeline.Series {
+
+    private static final long BAR_MILLIS = 60_000L;
+
+    final float[] close;
+    final double[][] values = new double[RSIPipeline.SIGNALS + 1][];
+
+    BenchSeries(int bars, long seed) {
+        close = new float[bars];
+        var random = new SplittableRandom(seed);
+        double price = 1.1;
+        for (int i = 0; i < bars; i++) {
+            price = Math.max(0.01, price + (random.nextDouble() - 0.5) * 0.002);
+            close[i] = (float) price;
+        }
+    }
+
+    @Override
+    public int size() { return close.length; }
+
+    @Override
+    public long startTime(int index) { return index * BAR_MILLIS; }
+
+    @Override
+    public float open(int index) { return close[index]; }
+
+    @Override
+    public float high(int index) { return close[index]; }
+
+    @Override
+    public float low(int index) { return close[index]; }
+
+    @Override
+    public float close(int index) { return close[index]; }
+
+    @Override
+    public double value(int index, int column) {
+        double[] values = this.values[column];
+        return (values != null) ? values[index] : Double.NaN;
+    }
+
+    @Override
+    public void setValue(int index, int column, double value) {
+        double[] values = this.values[column];
+        if (values == null) {
+            this.values[column] = values = new double[close.length];
+            Arrays.fill(values, Double.NaN);
+        }
+        values[index] = value;
+    }
+
+    @Override
+    public void clearValue(int index, int column) {
+        if (values[column] != null) values[column][index] = Double.NaN;
+    }
+
+    @Override
+    public String symbol() { return null; }
+
+    @Override
+    public String barSize() { return null; }
+
+    @Override
+    public BarAggregator.Session session() { return BarAggregator.Session.UTC; }
+}
@@ -0,0 +1,43 @@
+package com.biotak;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map-backed stand-in for MotiveWave Settings
+ * تنظیمات ساختگی برای بنچمارک
+ *
+ * Unset keys fall back to the caller's default, like the SDK does.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class BenchSettings implements SettingsCache.Source {
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    BenchSettings put(String key, Object value) {
+        values.put(key, value);
+        return this;
+    }
+
+    @Override
+    public int getInteger(String key, int def) { return (Integer) values.getOrDefault(key, def); }
+
+    @Override
+    public double getDouble(String key, double def) { return (Double) values.getOrDefault(key, def); }
+
+    @Override
+    public boolean getBoolean(String key, boolean def) { return (Boolean) values.getOrDefault(key, def); }
+
+    @Override
+    public String getString(String key, String def) { return (String) values.getOrDefault(key, def); }
+
+    @Override
+    public double getGuide(String key, double def) { return (Double) values.getOrDefault(key, def); }
+
+    @Override
+    public RSIEngine.Method getMethod(String key) {
+        return (RSIEngine.Method) values.getOrDefault(key, RSIEngine.Method.EMA);
+    }
+}
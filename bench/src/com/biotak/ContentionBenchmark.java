@@ -0,0 +1,58 @@
+package com.biotak;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CalculationState} shared by concurrent callers
+ * رقابت چند نخی روی وضعیت محاسبه
+ *
+ * Every thread runs the live-bar sequence (shouldCalculate, markCalculated)
+ * against one shared instance; compare the per-op time across thread counts
+ * to see what the shared state costs under contention.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+
+    private static final int TOTAL_BARS = 100_000;
+    private static final int MAX_LOOKBACK = 1000;
+
+    private final CalculationState state = new CalculationState();
+
+    private boolean liveBar() {
+        int index = TOTAL_BARS - 1;
+        boolean calculate = state.shouldCalculate(index, TOTAL_BARS, MAX_LOOKBACK);
+        if (calculate) state.markCalculated(index, TOTAL_BARS, CalculationState.priceKey(1.1f));
+        return calculate;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean oneThread() { return liveBar(); }
+
+    @Benchmark
+    @Threads(4)
+    public boolean fourThreads() { return liveBar(); }
+
+    @Benchmark
+    @Threads(8)
+    public boolean eightThreads() { return liveBar(); }
+}
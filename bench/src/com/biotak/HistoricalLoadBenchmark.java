@@ -0,0 +1,98 @@
+package com.biotak;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full-history load of all five lines, per smoothing method
+ * بارگذاری کامل تاریخچه برای هر روش میانگین
+ *
+ * {@code perBar} walks every bar through {@link RSIPipeline} the way MotiveWave
+ * calls {@code calculate()}; {@code kernel} is the bare fused engine pass over
+ * the same closes, i.e. the floor the per-bar path can approach; {@code bulk}
+ * is the study's first load: the pipeline's batch over the closed bars
+ * ({@link BulkRSI}, one fork-join task per line, written back into the series)
+ * and the live bar on the per-bar path; {@code load} is the whole of
+ * {@code calculateValues}: the batch, then {@code calculate()} for every bar.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoricalLoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int bars;
+
+    // JMH generated code lives in another package: the enum is passed by name
+    @Param({"EMA", "SMA", "SMMA", "WMA"})
+    String methodName;
+
+    // 0 loads every bar, as on a full reload; 1000 is the study's default window
+    @Param({"0"})
+    int maxLookback;
+
+    private BenchSeries series;
+    private BenchSettings settings;
+    private final RSIPipeline pipeline = new RSIPipeline(RSIPipeline.Listener.NONE);
+    private final RSIEngine engine = new RSIEngine(SettingsCache.NUM_RSI);
+    private double[][] out;
+
+    @Setup
+    public void setup() {
+        var method = RSIEngine.Method.valueOf(methodName);
+        series = new BenchSeries(bars, 42L);
+        settings = new BenchSettings().put("maxLookback", maxLookback).put("rsiMethod", method)
+            .put("show1", true).put("show5", true);
+        var enabled = new boolean[SettingsCache.NUM_RSI];
+        java.util.Arrays.fill(enabled, true);
+        engine.configure(SettingsCache.DEFAULT_PERIODS, enabled, method);
+        out = new double[SettingsCache.NUM_RSI][bars];
+    }
+
+    @Benchmark
+    public double perBar() {
+        pipeline.reset();
+        for (int i = 0; i < bars; i++) pipeline.calculate(i, series, settings);
+        return series.values[0][bars - 1];
+    }
+
+    @Benchmark
+    public double kernel() {
+        engine.reset();
+        engine.compute(series.close, 0, bars, out);
+        return out[0][bars - 1];
+    }
+
+    @Benchmark
+    public double bulk() {
+        pipeline.reset();
+        pipeline.calculateHistory(series, settings);
+        pipeline.calculate(bars - 1, series, settings);
+        return series.values[0][bars - 1];
+    }
+
+    @Benchmark
+    public double load() {
+        pipeline.reset();
+        pipeline.calculateHistory(series, settings);
+        for (int i = 0; i < bars; i++) pipeline.calculate(i, series, settings);
+        return series.values[0][bars - 1];
+    }
+}
@@ -0,0 +1,79 @@
+package com.biotak;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the runtime metrics on the live-tick path
+ * هزینه شمارنده‌های زمان اجرا روی تیک
+ *
+ * The {@link TickBenchmark} sequence with {@link StudyMetrics} off and on;
+ * off is the default and should match {@code TickBenchmark}. Start the JVM
+ * with {@code -XX:StartFlightRecording} to add the JFR check as well.
+ * {@code uncontendedLock} is one {@link TimedLock} acquire and release.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    boolean enabled;
+
+    private static final int BARS = 100_000;
+
+    private BenchSeries series;
+    private BenchSettings settings;
+    private final RSIPipeline pipeline = new RSIPipeline(RSIPipeline.Listener.NONE);
+    private final TimedLock lock = new TimedLock("bench");
+    private int last;
+    private float[] ticks;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        series = new BenchSeries(BARS, 42L);
+        settings = new BenchSettings().put("maxLookback", 0);
+        for (int i = 0; i < BARS; i++) pipeline.calculate(i, series, settings);
+        pipeline.metrics().setEnabled(enabled);
+        last = BARS - 1;
+        float close = series.close[last];
+        ticks = new float[] {close * 1.0001f, close * 0.9999f};
+    }
+
+    @Benchmark
+    public double changedClose() {
+        series.close[last] = ticks[tick ^= 1];
+        pipeline.calculate(last, series, settings);
+        return series.values[0][last];
+    }
+
+    @Benchmark
+    public double unchangedClose() {
+        pipeline.calculate(last, series, settings);
+        return series.values[0][last];
+    }
+
+    @Benchmark
+    public void uncontendedLock() {
+        lock.lock();
+        lock.unlock();
+    }
+}
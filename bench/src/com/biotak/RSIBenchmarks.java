@@ -0,0 +1,30 @@
+package com.biotak;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark launcher
+ * اجرای بنچمارک‌ها
+ *
+ * Same command line as the stock JMH main, with the GC profiler always on so
+ * every result carries its allocation rate ({@code gc.alloc.rate.norm} is
+ * bytes per operation). Example: {@code java -jar target/benchmarks.jar Tick}.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+public final class RSIBenchmarks {
+
+    private RSIBenchmarks() {}
+
+    public static void main(String[] args) throws Exception {
+        var options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
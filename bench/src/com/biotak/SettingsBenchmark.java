@@ -0,0 +1,56 @@
+package com.biotak;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call settings check in {@link SettingsCache#updateIfNeeded}
+ * هزینه بررسی تنظیمات در هر فراخوانی
+ *
+ * {@code unchanged} is what every {@code calculate()} pays; {@code changed}
+ * edits one period and marks the change each call (as {@code onSettingsUpdated}
+ * does), so it rebuilds the snapshot every time.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsBenchmark {
+
+    private final SettingsCache cache = new SettingsCache();
+    private final BenchSettings settings = new BenchSettings();
+    private boolean flip;
+
+    @Setup
+    public void setup() {
+        settings.put("tf2", "M5");
+        cache.updateIfNeeded(settings);
+    }
+
+    @Benchmark
+    public Object unchanged() {
+        return cache.updateIfNeeded(settings);
+    }
+
+    @Benchmark
+    public Object changed() {
+        settings.put("period1", (flip = !flip) ? 6.0 : 5.0);
+        cache.markChanged();
+        return cache.updateIfNeeded(settings);
+    }
+}
@@ -0,0 +1,67 @@
+package com.biotak;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Level-cross and alignment events, per closed bar
+ * هزینه تشخیص سیگنال‌ها برای هر کندل
+ *
+ * Feeds five random-walk RSI lines to {@link RSISignals} with every event
+ * enabled; the fifth line closes once every five bars, like a higher
+ * timeframe. Times are per bar.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalBenchmark {
+
+    private static final int BARS = 100_000;
+    private static final int LINES = SettingsCache.NUM_RSI;
+
+    private final double[][] values = new double[BARS][LINES];
+    private final RSISignals signals = new RSISignals(LINES);
+
+    @Setup
+    public void setup() {
+        var random = new Random(42L);
+        double[] v = {50.0, 50.0, 50.0, 50.0, 50.0};
+        for (int i = 0; i < BARS; i++) {
+            for (int l = 0; l < LINES; l++) {
+                v[l] = Math.max(0.0, Math.min(100.0, v[l] + random.nextGaussian() * (12.0 - 2.0 * l)));
+                values[i][l] = v[l];
+            }
+        }
+        signals.configure(new boolean[] {true, true, true, true, true}, 80.0, 20.0, 50.0, true, true, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BARS)
+    public long update() {
+        signals.prime(0, values[0]);
+        long events = 0;
+        for (int i = 1; i < BARS; i++) {
+            int closing = (i % 5 == 4) ? 0b11111 : 0b01111;
+            events ^= signals.update(i, values[i], closing);
+        }
+        return events;
+    }
+}
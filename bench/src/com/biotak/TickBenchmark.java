@@ -0,0 +1,72 @@
+package com.biotak;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Live ticks on the last bar of a loaded chart
+ * تیک روی آخرین کندل
+ *
+ * {@code changedClose} alternates the forming close so every call rolls the
+ * engine back and recomputes the bar; {@code unchangedClose} repeats the same
+ * close and should stop at the unchanged-tick check.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+
+    // JMH generated code lives in another package: the enum is passed by name
+    @Param({"EMA", "SMA", "SMMA", "WMA"})
+    String methodName;
+
+    private static final int BARS = 100_000;
+
+    private BenchSeries series;
+    private BenchSettings settings;
+    private final RSIPipeline pipeline = new RSIPipeline(RSIPipeline.Listener.NONE);
+    private int last;
+    private float[] ticks;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        var method = RSIEngine.Method.valueOf(methodName);
+        series = new BenchSeries(BARS, 42L);
+        settings = new BenchSettings().put("maxLookback", 0).put("rsiMethod", method);
+        for (int i = 0; i < BARS; i++) pipeline.calculate(i, series, settings);
+        last = BARS - 1;
+        float close = series.close[last];
+        ticks = new float[] {close * 1.0001f, close * 0.9999f};
+    }
+
+    @Benchmark
+    public double changedClose() {
+        series.close[last] = ticks[tick ^= 1];
+        pipeline.calculate(last, series, settings);
+        return series.values[0][last];
+    }
+
+    @Benchmark
+    public double unchangedClose() {
+        pipeline.calculate(last, series, settings);
+        return series.values[0][last];
+    }
+}
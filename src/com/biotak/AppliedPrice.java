@@ -0,0 +1,52 @@
+package com.biotak;
+
+/**
+ * Bar price an RSI line is computed from
+ * قیمت اعمال‌شده برای محاسبه RSI
+ *
+ * Same choices as MetaTrader's {@code ENUM_APPLIED_PRICE}. Derived prices use
+ * float arithmetic on the bar's float OHLC, so {@link #CLOSE} is bit-identical
+ * to reading the close directly.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+enum AppliedPrice {
+    CLOSE("Close"),
+    OPEN("Open"),
+    HIGH("High"),
+    LOW("Low"),
+    MEDIAN("Median (HL/2)"),
+    TYPICAL("Typical (HLC/3)"),
+    WEIGHTED("Weighted (HLCC/4)");
+
+    private final String label;
+
+    AppliedPrice(String label) {
+        this.label = label;
+    }
+
+    /** Name shown in the settings dialog and stored in the settings */
+    String label() { return label; }
+
+    float of(float open, float high, float low, float close) {
+        switch (this) {
+            case OPEN: return open;
+            case HIGH: return high;
+            case LOW: return low;
+            case MEDIAN: return (high + low) / 2f;
+            case TYPICAL: return (high + low + close) / 3f;
+            case WEIGHTED: return (high + low + close + close) / 4f;
+            default: return close;
+        }
+    }
+
+    /** Price with this label or enum name (case-insensitive); {@link #CLOSE} when unknown */
+    static AppliedPrice of(String name) {
+        if (name == null) return CLOSE;
+        for (AppliedPrice price : values()) {
+            if (price.label.equalsIgnoreCase(name) || price.name().equalsIgnoreCase(name)) return price;
+        }
+        return CLOSE;
+    }
+}
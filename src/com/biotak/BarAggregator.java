@@ -0,0 +1,169 @@
+package com.biotak;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Incremental higher-timeframe bar aggregator
+ * ساخت کندل‌های تایم‌فریم بالاتر از کندل‌های چارت
+ *
+ * Resamples consecutive base bars into OHLC buckets of {@code tfMillis}.
+ * Buckets are cut from the start of each trading day as the {@link Session}
+ * reports it: a D1 bucket is one trading day, shorter buckets are counted
+ * from the day start (so H4 bars of a session opening at 17:00 start at
+ * 17:00, 21:00, ...). The default session is UTC midnight. Base bars must be fed in
+ * index order; feeding the last base bar again updates the forming bucket
+ * in place, so a tick costs O(1) and never touches completed buckets.
+ *
+ * Not thread-safe.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class BarAggregator {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    // Shortest day a session can have (a DST switch): a known day start stays valid that long
+    private static final long MIN_DAY_MILLIS = DAY_MILLIS - 3_600_000L;
+
+    /** Start of the trading day holding a time */
+    interface Session {
+        long startOfDay(long time);
+
+        /** Days starting at UTC midnight */
+        Session UTC = time -> Math.floorDiv(time, DAY_MILLIS) * DAY_MILLIS;
+
+        /** Days starting at local midnight in {@code zone} */
+        static Session of(ZoneId zone) {
+            return time -> Instant.ofEpochMilli(time).atZone(zone).toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
+
+    private final long tfMillis;
+    private final Session session;
+    private long dayStart = Long.MAX_VALUE;
+
+    private long[] bucketKeys = new long[64];
+    private int[] firstBase = new int[64];
+    private float[] open = new float[64];
+    private float[] high = new float[64];
+    private float[] low = new float[64];
+    private float[] close = new float[64];
+    private int count = 0;
+    private int lastBase = -1;
+
+    BarAggregator(long tfMillis) {
+        this(tfMillis, Session.UTC);
+    }
+
+    BarAggregator(long tfMillis, Session session) {
+        this.tfMillis = tfMillis;
+        this.session = session;
+    }
+
+    long timeframeMillis() { return tfMillis; }
+
+    void reset() {
+        count = 0;
+        lastBase = -1;
+    }
+
+    /** Index of the last base bar fed, or -1 */
+    int lastBaseIndex() { return lastBase; }
+
+    /** Number of aggregated bars; the last one may still be forming */
+    int size() { return count; }
+
+    /** First base bar index of aggregated bar {@code htfIndex} */
+    int firstBaseIndex(int htfIndex) { return firstBase[htfIndex]; }
+
+    /** Bucket key (the bucket's start time) for a base bar start time */
+    long bucketOf(long startTime) {
+        // Consecutive bars mostly share a day: ask the session once per day
+        if (startTime < dayStart || startTime - dayStart >= MIN_DAY_MILLIS) dayStart = session.startOfDay(startTime);
+        if (tfMillis >= DAY_MILLIS) return dayStart;
+        return dayStart + Math.floorDiv(startTime - dayStart, tfMillis) * tfMillis;
+    }
+
+    float[] opens() { return open; }
+    float[] highs() { return high; }
+    float[] lows() { return low; }
+    float[] closes() { return close; }
+
+    /**
+     * Feeds base bar {@code baseIndex}; returns the aggregated index it belongs to.
+     * Must be called with {@code lastBaseIndex()} or {@code lastBaseIndex() + 1}
+     * (any index after {@link #reset()}).
+     */
+    int update(int baseIndex, long startTime, float o, float h, float l, float c) {
+        if (count > 0 && baseIndex == lastBase) {
+            // Tick on the last base bar: only the forming bucket changes
+            int k = count - 1;
+            if (firstBase[k] == baseIndex) {
+                open[k] = o; high[k] = h; low[k] = l;
+            } else {
+                high[k] = Math.max(high[k], h);
+                low[k] = Math.min(low[k], l);
+            }
+            close[k] = c;
+            return k;
+        }
+        if (count > 0 && baseIndex != lastBase + 1) {
+            throw new IllegalStateException("Non-contiguous base bar " + baseIndex + " after " + lastBase);
+        }
+
+        long key = bucketOf(startTime);
+        lastBase = baseIndex;
+        if (count > 0 && bucketKeys[count - 1] == key) {
+            int k = count - 1;
+            high[k] = Math.max(high[k], h);
+            low[k] = Math.min(low[k], l);
+            close[k] = c;
+            return k;
+        }
+
+        ensureCapacity(count + 1);
+        int k = count++;
+        bucketKeys[k] = key;
+        firstBase[k] = baseIndex;
+        open[k] = o;
+        high[k] = h;
+        low[k] = l;
+        close[k] = c;
+        return k;
+    }
+
+    /** Aggregated index holding base bar {@code baseIndex}, or -1 when it was not fed */
+    int indexOfBase(int baseIndex) {
+        if (count == 0 || baseIndex < firstBase[0] || baseIndex > lastBase) return -1;
+        int lo = 0, hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstBase[mid] <= baseIndex) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Drops aggregated bars from {@code size} on, as if only the base bars before
+     * {@code firstBaseIndex(size)} had been fed; completed buckets stay untouched.
+     */
+    void truncate(int size) {
+        if (size >= count) return;
+        lastBase = (size > 0) ? firstBase[size] - 1 : -1;
+        count = size;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= bucketKeys.length) return;
+        int cap = Math.max(size, bucketKeys.length + (bucketKeys.length >> 1));
+        bucketKeys = Arrays.copyOf(bucketKeys, cap);
+        firstBase = Arrays.copyOf(firstBase, cap);
+        open = Arrays.copyOf(open, cap);
+        high = Arrays.copyOf(high, cap);
+        low = Arrays.copyOf(low, cap);
+        close = Arrays.copyOf(close, cap);
+    }
+}
@@ -0,0 +1,199 @@
+package com.biotak;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Range-batched RSI computation, one line per fork-join task
+ * محاسبه دسته‌ای تاریخچه به صورت موازی برای هر خط
+ *
+ * Computes a whole bar range for every enabled line at once: each bar's OHLC is
+ * read once, chunk by chunk, into a ring of {@link PriceColumns} (one row per
+ * distinct applied price), each line runs its own {@link RSIEngine} on a
+ * pool shared by all charts and sized to the machine, and each chunk of
+ * results is handed back on the calling thread. Afterwards a line's state can
+ * be exported so a per-bar engine continues incrementally.
+ *
+ * Not thread-safe.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class BulkRSI {
+
+    private static final int CHUNK = 16_384;
+    private static final int MIN_CHUNK = 1_024;
+    // Below this many bars times lines a chunk stays on the calling thread
+    private static final int PARALLEL_MIN_WORK = 4_096;
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /** Receives {@code values[offset .. offset + count)} as line {@code line}'s RSI for bars {@code first ..} */
+    interface Sink {
+        void write(int line, int first, double[] values, int offset, int count);
+        
+        /** Line {@code line}'s state after {@code bar}, every {@link #setStateInterval state interval} bars */
+        default void state(int line, int bar, double[] state) {}
+    }
+
+    private final int numLines;
+    private final RSIEngine[] engines;
+    private final double[][] out;
+    private final PriceColumns prices;
+    private int[] lines = new int[0];
+    private int ringCapacity = 0;
+    private int chunk = 0;
+    private int maxPeriod = 0;
+    private int stateInterval = 0;
+    private final double[][][] states;
+    private final int[][] stateBars;
+    private final int[] stateCounts;
+
+    BulkRSI(int numLines) {
+        this.numLines = numLines;
+        this.engines = new RSIEngine[numLines];
+        this.out = new double[numLines][];
+        this.prices = new PriceColumns(numLines);
+        this.states = new double[numLines][][];
+        this.stateBars = new int[numLines][];
+        this.stateCounts = new int[numLines];
+    }
+    
+    /** Hands each line's state to {@link Sink#state} after every bar {@code b} with {@code (b + 1) % interval == 0}; 0 = off */
+    void setStateInterval(int interval) {
+        stateInterval = interval;
+        Arrays.fill(states, null);
+    }
+
+    /** Same contract as {@link RSIEngine#configure}, every line on the close */
+    void configure(double[] periods, boolean[] enabled, RSIEngine.Method method) {
+        AppliedPrice[] closes = new AppliedPrice[numLines];
+        Arrays.fill(closes, AppliedPrice.CLOSE);
+        configure(periods, enabled, method, closes);
+    }
+
+    /** Same contract as {@link RSIEngine#configure}; every enabled line gets its own engine over its price row */
+    void configure(double[] periods, boolean[] enabled, RSIEngine.Method method, AppliedPrice[] linePrices) {
+        int count = 0;
+        maxPeriod = 0;
+        for (int l = 0; l < numLines; l++) {
+            if (!enabled[l]) {
+                engines[l] = null;
+                out[l] = null;
+                continue;
+            }
+            engines[l] = new RSIEngine(1);
+            engines[l].configure(new double[] {periods[l]}, new boolean[] {true}, method);
+            maxPeriod = Math.max(maxPeriod, engines[l].maxPeriod());
+            count++;
+        }
+        lines = new int[count];
+        for (int l = 0, k = 0; l < numLines; l++) {
+            if (enabled[l]) lines[k++] = l;
+        }
+        prices.configure(linePrices, enabled);
+        ringCapacity = 0;
+    }
+
+    /**
+     * Sizes the chunk buffers for a range of {@code bars}: a short window gets
+     * buffers just big enough for it, anything longer runs {@code CHUNK} bars at a
+     * time. Buffers only grow.
+     */
+    private void reserve(int bars) {
+        int size = Math.min(CHUNK, Math.max(MIN_CHUNK, Integer.highestOneBit(Math.max(1, bars - 1)) << 1));
+        chunk = Math.max(chunk, size);
+        for (int l : lines) {
+            if (out[l] == null || out[l].length < chunk) out[l] = new double[chunk];
+            int slots = (stateInterval > 0) ? chunk / stateInterval + 1 : 0;
+            if (states[l] == null || states[l].length < slots) {
+                states[l] = new double[slots][RSIEngine.lineStateSize()];
+                stateBars[l] = new int[slots];
+            }
+        }
+        int capacity = Integer.highestOneBit((chunk + maxPeriod + 2) * 2 - 1);
+        if (ringCapacity != capacity || prices.mask() < 0) {
+            prices.useRing(capacity);
+            ringCapacity = capacity;
+        }
+    }
+
+    boolean hasLines() { return lines.length > 0; }
+
+    /**
+     * Computes bars {@code [from, to)} from scratch. RSIs of bars at or after
+     * {@code outFrom} go to {@code sink} chunk by chunk, on the calling thread.
+     */
+    void compute(PriceColumns.Bars bars, int from, int to, int outFrom, Sink sink) {
+        compute(bars, from, to, outFrom, sink, null);
+    }
+
+    /**
+     * Same, but continuing from {@code startStates[line]}, each line's state after bar
+     * {@code from - 1} (see {@link RSIEngine#exportState}), instead of seeding at {@code from}.
+     */
+    void compute(PriceColumns.Bars bars, int from, int to, int outFrom, Sink sink, double[][] startStates) {
+        if (to <= from || lines.length == 0) return;
+        reserve(to - from);
+
+        int loaded = Math.max(0, from - maxPeriod - 1);
+        if (startStates == null || from == 0) {
+            for (int l : lines) engines[l].reset();
+        } else {
+            for (; loaded < from; loaded++) prices.load(bars, loaded);
+            for (int l : lines) engines[l].importState(row(l), prices.mask(), from - 1, new double[][] {startStates[l]});
+        }
+        for (int start = from; start < to; start += chunk) {
+            int end = Math.min(to, start + chunk);
+            for (; loaded < end; loaded++) prices.load(bars, loaded);
+            computeChunk(start, end);
+            if (sink == null) continue;
+            for (int l : lines) {
+                for (int k = 0; k < stateCounts[l]; k++) sink.state(l, stateBars[l][k], states[l][k]);
+            }
+            if (end <= outFrom) continue;
+            int first = Math.max(start, outFrom);
+            for (int l : lines) sink.write(l, first, out[l], first - start, end - first);
+        }
+    }
+
+    /** Copies the state of {@code line} after the last computed bar; see {@link RSIEngine#exportState} */
+    void exportState(int line, double[] dst) {
+        engines[line].exportState(0, dst);
+    }
+
+    private void computeChunk(int start, int end) {
+        if ((end - start) * lines.length < PARALLEL_MIN_WORK) {
+            for (int l : lines) computeLine(l, start, end);
+            return;
+        }
+        // The first line runs on the calling thread, the rest on the pool
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[lines.length];
+        for (int k = 1; k < lines.length; k++) {
+            int l = lines[k];
+            tasks[k] = POOL.submit(() -> computeLine(l, start, end));
+        }
+        computeLine(lines[0], start, end);
+        for (int k = 1; k < lines.length; k++) tasks[k].join();
+    }
+
+    private void computeLine(int line, int start, int end) {
+        double[][] dst = {out[line]};
+        int at = start, count = 0;
+        if (stateInterval > 0) {
+            // Stop at every interval boundary to copy the state out
+            for (int bar = (start / stateInterval + 1) * stateInterval - 1; bar < end; bar += stateInterval) {
+                engines[line].compute(row(line), prices.mask(), at, bar + 1, dst, start);
+                engines[line].exportState(0, states[line][count]);
+                stateBars[line][count++] = bar;
+                at = bar + 1;
+            }
+        }
+        if (at < end) engines[line].compute(row(line), prices.mask(), at, end, dst, start);
+        stateCounts[line] = count;
+    }
+
+    private float[] row(int line) {
+        return prices.rows()[prices.lineRows()[line]];
+    }
+}
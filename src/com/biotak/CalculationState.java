@@ -0,0 +1,125 @@
+package com.biotak;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Incremental calculation state
+ * مدیریت وضعیت محاسبه تدریجی
+ *
+ * Decides which bars {@code calculate()} must (re)compute given the lookback
+ * window and bar-count changes, and remembers the last live candle's prices so
+ * unchanged ticks can be skipped. A shrinking series (bar replay, backtest
+ * stepping) keeps the bars it still has and recomputes only the new live bar,
+ * unless the window would now start before its calculated range: then the
+ * window restarts, so every bar is computed from the same seed bar. All bookkeeping lives in one immutable
+ * {@link Snapshot} swapped by compare-and-set: reads take no lock. Each
+ * computed bar and each changed tick allocates one small snapshot; unchanged
+ * ticks and bars that need no work allocate nothing.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class CalculationState {
+    
+    /**
+     * @param firstCalculatedIndex first bar of the calculated range
+     * @param lastCalculatedIndex furthest bar computed so far
+     * @param maxLookback         lookback the window was derived from, -1 before the first call
+     * @param totalBars           series size seen by the last call
+     * @param candleHash          (last bar index << 32) ^ {@link #priceKey price key} of the last calculated live bar
+     */
+    record Snapshot(int firstCalculatedIndex, int lastCalculatedIndex, int maxLookback, int totalBars, long candleHash) {}
+    
+    private static final Snapshot INITIAL = new Snapshot(0, -1, -1, 0, -1L);
+    
+    private final AtomicReference<Snapshot> state = new AtomicReference<>(INITIAL);
+    private final AtomicInteger lookbackRestarts = new AtomicInteger();
+    private final AtomicInteger rewindRestarts = new AtomicInteger();
+    
+    Snapshot snapshot() { return state.get(); }
+    
+    /** True when this is a tick on the already-calculated last bar with unchanged prices */
+    boolean isUnchangedTick(int index, int totalBars, long priceKey) {
+        if (index != totalBars - 1) return false;
+        Snapshot s = state.get();
+        return s.totalBars == totalBars && s.candleHash == candleHash(index, priceKey);
+    }
+    
+    /** Tick key of a bar whose lines only read its close: the close bits themselves */
+    static long priceKey(float close) {
+        return Float.floatToRawIntBits(close) & 0xFFFFFFFFL;
+    }
+    
+    /** Tick key of a bar whose lines read other applied prices: a 64-bit mix of its OHLC */
+    static long priceKey(float open, float high, float low, float close) {
+        long h = ((long) Float.floatToRawIntBits(open) << 32) | (Float.floatToRawIntBits(high) & 0xFFFFFFFFL);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h ^= ((long) Float.floatToRawIntBits(low) << 32) | (Float.floatToRawIntBits(close) & 0xFFFFFFFFL);
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+    
+    private static long candleHash(int index, long priceKey) {
+        return ((long) index << 32) ^ priceKey;
+    }
+    
+    boolean shouldCalculate(int index, int totalBars, int maxLookback) {
+        if (index < 0 || totalBars <= 0) return false;
+        int calcStartIndex = (maxLookback > 0) ? Math.max(0, totalBars - maxLookback) : 0;
+        
+        Snapshot s = state.get();
+        while (s.maxLookback != maxLookback || s.totalBars != totalBars) {
+            Snapshot next;
+            AtomicInteger restarts = null;
+            int kept = Math.min(s.lastCalculatedIndex, totalBars - 2);
+            boolean movedBack = calcStartIndex < s.firstCalculatedIndex || kept < s.firstCalculatedIndex;
+            if (s.maxLookback != maxLookback || (totalBars < s.totalBars && movedBack)) {
+                // Lookback changed, or the window reaches before (or rewound past) the
+                // calculated range: restart the window so no bar keeps an older seed
+                next = new Snapshot(calcStartIndex, calcStartIndex - 1, maxLookback, totalBars, s.candleHash);
+                if (s.maxLookback >= 0) restarts = (s.maxLookback != maxLookback) ? lookbackRestarts : rewindRestarts;
+            } else if (totalBars < s.totalBars) {
+                // Rewound within the window: closed bars still present keep their values
+                next = new Snapshot(s.firstCalculatedIndex, kept, maxLookback, totalBars, s.candleHash);
+            } else {
+                next = new Snapshot(s.firstCalculatedIndex, s.lastCalculatedIndex, maxLookback, totalBars, s.candleHash);
+            }
+            if (state.compareAndSet(s, next)) {
+                if (restarts != null) restarts.incrementAndGet();
+                s = next;
+                break;
+            }
+            s = state.get();
+        }
+        
+        if (index < calcStartIndex) return false;
+        return index > s.lastCalculatedIndex || index == totalBars - 1;
+    }
+    
+    /**
+     * Records bar {@code index} as calculated; on the live bar ({@code index == totalBars - 1})
+     * also remembers its price key for {@link #isUnchangedTick}. One swap covers both.
+     */
+    void markCalculated(int index, int totalBars, long priceKey) {
+        boolean live = index == totalBars - 1;
+        long hash = live ? candleHash(index, priceKey) : 0L;
+        while (true) {
+            Snapshot s = state.get();
+            int last = Math.max(s.lastCalculatedIndex, index);
+            long candle = live ? hash : s.candleHash;
+            if (last == s.lastCalculatedIndex && candle == s.candleHash) return;
+            if (state.compareAndSet(s, new Snapshot(s.firstCalculatedIndex, last, s.maxLookback, s.totalBars, candle))) return;
+        }
+    }
+    
+    void reset() {
+        state.set(INITIAL);
+    }
+    
+    /** Window restarts after the lookback changed (the first call is not counted) */
+    int lookbackRestarts() { return lookbackRestarts.get(); }
+    
+    /** Window restarts after the series shrank past, or the window moved before, the calculated range */
+    int rewindRestarts() { return rewindRestarts.get(); }
+}
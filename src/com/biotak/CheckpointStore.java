@@ -0,0 +1,170 @@
+package com.biotak;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent smoothing-state checkpoints
+ * ذخیره وضعیت میانگین‌ها روی دیسک برای شروع سریع
+ *
+ * One small file per (instrument, bar size, method, period, applied price)
+ * holds the newest {@link #MAX_CHECKPOINTS} line states taken every
+ * {@link #INTERVAL} bars. Only states of a recurrence run over the whole loaded
+ * history are saved, so any chart showing that line can continue from one,
+ * whatever its own window. A checkpoint names its bar by start time and carries
+ * a hash of the bars that state reads directly, the last {@code ceil(period) + 1}
+ * up to and including it ({@link #tailLength}): a chart checks just those bars
+ * before resuming, never the range behind them, which only reaches an EMA or
+ * SMMA state through its decay.
+ * Files go to {@code -Dbiotak.rsi.checkpointDir}, by default
+ * {@code ~/MotiveWave Extensions/biotak-checkpoints}; they are replaced
+ * atomically on one background thread, and unreadable files are treated as empty.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class CheckpointStore {
+
+    static final int INTERVAL = 4096;
+    static final int MAX_CHECKPOINTS = 32;
+    private static final int MAGIC = 0x42524B50; // "BRKP"
+    private static final int VERSION = 3;
+    private static final ExecutorService SAVER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "biotak-checkpoint-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile Path directory = Path.of(System.getProperty("biotak.rsi.checkpointDir",
+        Path.of(System.getProperty("user.home"), "MotiveWave Extensions", "biotak-checkpoints").toString()));
+
+    private CheckpointStore() {}
+
+    /** Identity of one line's checkpoints */
+    record Key(String instrument, String barSize, RSIEngine.Method method, double period, AppliedPrice price) {
+
+        String fileName() {
+            String name = instrument + "_" + barSize + "_" + method + "_" + period + "_" + price;
+            return name.replaceAll("[^A-Za-z0-9._-]", "_") + "_"
+                + Integer.toHexString(name.hashCode()) + ".ckpt";
+        }
+    }
+
+    /** State of one line after the bar starting at {@code barTime}; {@code tailHash} covers the bars it reads */
+    record Checkpoint(long barTime, long tailHash, double[] state) {}
+
+    static Path directory() { return directory; }
+
+    static void setDirectory(Path dir) { directory = dir; }
+
+    /** Bars a checkpoint of a {@code period} line is validated against: its own and the {@code ceil(period)} before */
+    static int tailLength(double period) {
+        return (int) Math.ceil(period) + 1;
+    }
+
+    /** Folds one bar (its start time and OHLC) into a tail hash; start with {@code 0} */
+    static long mix(long hash, long time, float open, float high, float low, float close) {
+        long h = hash ^ (time * 0x9E3779B97F4A7C15L);
+        h = (h ^ (h >>> 29)) * 0xBF58476D1CE4E5B9L;
+        h ^= ((long) Float.floatToRawIntBits(open) << 32) | (Float.floatToRawIntBits(high) & 0xFFFFFFFFL);
+        h = (h ^ (h >>> 32)) * 0x94D049BB133111EBL;
+        h ^= ((long) Float.floatToRawIntBits(low) << 32) | (Float.floatToRawIntBits(close) & 0xFFFFFFFFL);
+        return (h ^ (h >>> 29)) * 0xBF58476D1CE4E5B9L;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // FILES
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** Checkpoints for {@code key}, oldest first; empty when missing or unreadable */
+    static List<Checkpoint> load(Key key) {
+        var result = new ArrayList<Checkpoint>();
+        Path file = directory.resolve(key.fileName());
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return result;
+            if (!in.readUTF().equals(key.toString())) return result;
+            int count = in.readInt();
+            int stateSize = in.readInt();
+            if (count < 0 || count > MAX_CHECKPOINTS || stateSize != RSIEngine.lineStateSize()) return result;
+            for (int c = 0; c < count; c++) {
+                long barTime = in.readLong();
+                long tailHash = in.readLong();
+                double[] state = new double[stateSize];
+                for (int f = 0; f < stateSize; f++) state[f] = in.readDouble();
+                result.add(new Checkpoint(barTime, tailHash, state));
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing saved yet
+        } catch (IOException e) {
+            result.clear();
+        }
+        return result;
+    }
+
+    /** Replaces the file for {@code key} with the newest {@link #MAX_CHECKPOINTS} of {@code checkpoints} */
+    static void save(Key key, List<Checkpoint> checkpoints) throws IOException {
+        Path dir = directory;
+        Files.createDirectories(dir);
+        Path file = dir.resolve(key.fileName());
+        Path tmp = Files.createTempFile(dir, key.fileName(), ".tmp");
+        try {
+            int from = Math.max(0, checkpoints.size() - MAX_CHECKPOINTS);
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key.toString());
+                out.writeInt(checkpoints.size() - from);
+                out.writeInt(RSIEngine.lineStateSize());
+                for (int c = from; c < checkpoints.size(); c++) {
+                    Checkpoint checkpoint = checkpoints.get(c);
+                    out.writeLong(checkpoint.barTime());
+                    out.writeLong(checkpoint.tailHash());
+                    for (double v : checkpoint.state()) out.writeDouble(v);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Queues {@code task} (typically {@link #save} calls) on the background thread, after earlier tasks */
+    static void submit(Runnable task) {
+        SAVER.execute(task);
+    }
+
+    /** Waits until every task queued so far has run */
+    static void awaitSaves() throws InterruptedException {
+        try {
+            SAVER.submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Adds {@code checkpoint} after any older ones, dropping entries at or after its bar */
+    static void add(List<Checkpoint> checkpoints, Checkpoint checkpoint) {
+        while (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).barTime() >= checkpoint.barTime()) {
+            checkpoints.remove(checkpoints.size() - 1);
+        }
+        checkpoints.add(checkpoint);
+        if (checkpoints.size() > MAX_CHECKPOINTS) checkpoints.remove(0);
+    }
+}
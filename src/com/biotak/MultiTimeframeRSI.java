@@ -4,6 +4,7 @@ import com.motivewave.platform.sdk.common.*;
 import com.motivewave.platform.sdk.study.Study;
 import com.motivewave.platform.sdk.study.StudyHeader;
 import com.motivewave.platform.sdk.common.desc.*;
+import com.motivewave.platform.sdk.draw.Marker;
 
 import java.awt.Color;
 
@@ -30,135 +31,28 @@ import java.awt.Color;
 )
 public class MultiTimeframeRSI extends Study {
     
+    // Ordinals are the RSIPipeline column numbers
     enum Values { 
         RSI1, RSI2, RSI3, RSI4, RSI5,
-        AVG_GAIN1, AVG_LOSS1, AVG_GAIN2, AVG_LOSS2, AVG_GAIN3, AVG_LOSS3,
-        AVG_GAIN4, AVG_LOSS4, AVG_GAIN5, AVG_LOSS5
+        ALIGNMENT, SIGNALS
     }
     
-    // ═══════════════════════════════════════════════════════════════════════════
-    // SETTINGS CACHE
-    // ═══════════════════════════════════════════════════════════════════════════
-    
-    private static class SettingsCache {
-        private volatile SettingsSnapshot snapshot = null;
-        private volatile int lastSettingsHash = 0;
-        private final Object updateLock = new Object();
-        
-        private static class SettingsSnapshot {
-            final int maxLookback;
-            final boolean[] showFlags;
-            final double[] rsiPeriods;
-            final Enums.MAMethod rsiMethod;
-            final int settingsHash;
-            
-            SettingsSnapshot(Settings settings) {
-                this.maxLookback = settings.getInteger("maxLookback", DEFAULT_MAX_LOOKBACK);
-                this.rsiMethod = settings.getMAMethod("rsiMethod", Enums.MAMethod.EMA);
-                this.showFlags = new boolean[NUM_RSI];
-                this.rsiPeriods = new double[NUM_RSI];
-                
-                int hash = 17;
-                hash = 31 * hash + maxLookback;
-                hash = 31 * hash + rsiMethod.ordinal();
-                
-                for (int i = 0; i < NUM_RSI; i++) {
-                    showFlags[i] = settings.getBoolean(SHOW_KEYS[i], true);
-                    rsiPeriods[i] = settings.getDouble(PERIOD_KEYS[i], DEFAULT_PERIODS[i]);
-                    hash = 31 * hash + (showFlags[i] ? 1 : 0);
-                    hash = 31 * hash + Double.hashCode(rsiPeriods[i]);
-                }
-                this.settingsHash = hash;
-            }
-        }
-        
-        SettingsSnapshot updateIfNeeded(Settings settings) {
-            if (settings == null) return null;
-            SettingsSnapshot current = snapshot;
-            if (current != null) {
-                int quickHash = computeQuickHash(settings);
-                if (quickHash == lastSettingsHash) return current;
-                synchronized (updateLock) {
-                    if (snapshot != null && lastSettingsHash == quickHash) return snapshot;
-                    current = new SettingsSnapshot(settings);
-                    snapshot = current;
-                    lastSettingsHash = current.settingsHash;
-                    return current;
-                }
-            }
-            synchronized (updateLock) {
-                if (snapshot != null) return snapshot;
-                current = new SettingsSnapshot(settings);
-                snapshot = current;
-                lastSettingsHash = current.settingsHash;
-                return current;
-            }
-        }
-        
-        private int computeQuickHash(Settings settings) {
-            int hash = 17;
-            hash = 31 * hash + settings.getInteger("maxLookback", DEFAULT_MAX_LOOKBACK);
-            hash = 31 * hash + settings.getMAMethod("rsiMethod", Enums.MAMethod.EMA).ordinal();
-            for (int i = 0; i < NUM_RSI; i++) {
-                hash = 31 * hash + (settings.getBoolean(SHOW_KEYS[i], true) ? 1 : 0);
-                hash = 31 * hash + Double.hashCode(settings.getDouble(PERIOD_KEYS[i], DEFAULT_PERIODS[i]));
-            }
-            return hash;
-        }
-        
-        void invalidate() {
-            synchronized (updateLock) {
-                snapshot = null;
-                lastSettingsHash = 0;
-            }
-        }
-    }
-    
-    // ═══════════════════════════════════════════════════════════════════════════
-    // CALCULATION STATE
-    // ═══════════════════════════════════════════════════════════════════════════
-    
-    private static class CalculationState {
-        private final java.util.concurrent.atomic.AtomicInteger lastCalculatedIndex = 
-            new java.util.concurrent.atomic.AtomicInteger(-1);
-        private final java.util.concurrent.atomic.AtomicInteger currentMaxLookback = 
-            new java.util.concurrent.atomic.AtomicInteger(-1);
-        private final java.util.concurrent.atomic.AtomicInteger lastTotalBars = 
-            new java.util.concurrent.atomic.AtomicInteger(0);
-        private final Object stateLock = new Object();
-        
-        boolean shouldCalculate(int index, int totalBars, int maxLookback) {
-            if (index < 0 || totalBars <= 0) return false;
-            int calcStartIndex = (maxLookback > 0) ? Math.max(0, totalBars - maxLookback) : 0;
-            
-            synchronized (stateLock) {
-                int prevMaxLookback = currentMaxLookback.get();
-                int prevTotalBars = lastTotalBars.get();
-                
-                if (prevMaxLookback != maxLookback) {
-                    currentMaxLookback.set(maxLookback);
-                    lastTotalBars.set(totalBars);
-                    lastCalculatedIndex.set(calcStartIndex - 1);
-                } else if (totalBars != prevTotalBars) {
-                    lastTotalBars.set(totalBars);
-                    if (totalBars < prevTotalBars) lastCalculatedIndex.set(calcStartIndex - 1);
-                }
-            }
-            
-            if (index < calcStartIndex) return false;
-            return index > lastCalculatedIndex.get() || index == totalBars - 1;
-        }
-        
-        void markCalculated(int index) {
-            lastCalculatedIndex.updateAndGet(current -> Math.max(current, index));
-        }
-        
-        void reset() {
-            synchronized (stateLock) {
-                lastCalculatedIndex.set(-1);
-                currentMaxLookback.set(-1);
-                lastTotalBars.set(0);
-            }
+    enum Signals {
+        OVERBOUGHT_ENTER("RSI Crossed Above Overbought"),
+        OVERBOUGHT_EXIT("RSI Crossed Below Overbought"),
+        OVERSOLD_ENTER("RSI Crossed Below Oversold"),
+        OVERSOLD_EXIT("RSI Crossed Above Oversold"),
+        MIDLINE_UP("RSI Crossed Above Midline"),
+        MIDLINE_DOWN("RSI Crossed Below Midline"),
+        ALIGNED_OVERBOUGHT("All RSIs Overbought"),
+        ALIGNED_OVERSOLD("All RSIs Oversold"),
+        ALIGNED_BULLISH("All RSIs Above Midline"),
+        ALIGNED_BEARISH("All RSIs Below Midline");
+        
+        final String label;
+        
+        Signals(String label) {
+            this.label = label;
         }
     }
     
@@ -166,13 +60,17 @@ public class MultiTimeframeRSI extends Study {
     // CONSTANTS
     // ═══════════════════════════════════════════════════════════════════════════
     
-    private static final int NUM_RSI = 5;
-    private static final String[] PERIOD_KEYS = {"period1", "period2", "period3", "period4", "period5"};
-    private static final String[] SHOW_KEYS = {"show1", "show2", "show3", "show4", "show5"};
-    private static final Values[] RSI_VALUES = {Values.RSI1, Values.RSI2, Values.RSI3, Values.RSI4, Values.RSI5};
-    private static final Values[] AVG_GAIN_VALUES = {Values.AVG_GAIN1, Values.AVG_GAIN2, Values.AVG_GAIN3, Values.AVG_GAIN4, Values.AVG_GAIN5};
-    private static final Values[] AVG_LOSS_VALUES = {Values.AVG_LOSS1, Values.AVG_LOSS2, Values.AVG_LOSS3, Values.AVG_LOSS4, Values.AVG_LOSS5};
-    private static final double[] DEFAULT_PERIODS = {5.0, 15.0, 30.0, 60.0, 240.0};
+    private static final Values[] COLUMNS = Values.values();
+    private static final Double MISSING = Double.NaN;
+    
+    private static final String TF_CHART = SettingsCache.TF_CHART;
+    private static final java.util.List<NVP> TF_OPTIONS = new java.util.ArrayList<>();
+    private static final String PRICE_CLOSE = AppliedPrice.CLOSE.label();
+    private static final java.util.List<NVP> PRICE_OPTIONS = new java.util.ArrayList<>();
+    static {
+        for (String name : SettingsCache.TF_NAMES) TF_OPTIONS.add(new NVP(name, name));
+        for (AppliedPrice price : AppliedPrice.values()) PRICE_OPTIONS.add(new NVP(price.label(), price.label()));
+    }
     
     private static final Color COLOR_GREEN = new Color(40, 140, 60);
     private static final Color COLOR_BLACK = new Color(40, 40, 40);
@@ -184,22 +82,42 @@ public class MultiTimeframeRSI extends Study {
     private static final float[] DASH_2_4 = {2, 4};
     private static final float[] DASH_4_4 = {4, 4};
     
+    // Signal presentation, by RSISignals line event kind and by Signals ordinal
+    private static final Signals[] SIGNALS = Signals.values();
+    private static final String[] LINE_EVENT_TEXT = {"crossed above overbought", "crossed below overbought",
+        "crossed below oversold", "crossed above oversold", "crossed above the midline", "crossed below the midline"};
+    private static final boolean[] UPWARD = {true, false, false, true, true, false, true, false, true, false};
+    
     private static final String[] KEY_P1 = {"period1"};
     private static final String[] KEY_P2 = {"period2"};
     private static final String[] KEY_P3 = {"period3"};
     private static final String[] KEY_P4 = {"period4"};
     private static final String[] KEY_P5 = {"period5"};
     
-    private final SettingsCache settingsCache = new SettingsCache();
-    private final CalculationState calculationState = new CalculationState();
-    private static final int DEFAULT_MAX_LOOKBACK = 1000;
-
+    private static final int DEFAULT_MAX_LOOKBACK = SettingsCache.DEFAULT_MAX_LOOKBACK;
+    private static final int DEFAULT_NORM_LOOKBACK = SettingsCache.DEFAULT_NORM_LOOKBACK;
+    
+    // The per-bar path; this class adapts MotiveWave to it and draws its signal events
+    private final RSIPipeline pipeline = new RSIPipeline(new SignalMarkers());
+    private SdkSettings settingsSource = null;
+    private ChartSeries chart = null;
     
     @Override
     public void clearState() {
         super.clearState();
-        settingsCache.invalidate();
-        calculationState.reset();
+        pipeline.clear();
+    }
+    
+    @Override
+    public void onSettingsUpdated(DataContext ctx) {
+        pipeline.settingsChanged();
+        super.onSettingsUpdated(ctx);
+    }
+    
+    @Override
+    public void destroy() {
+        pipeline.destroy();
+        super.destroy();
     }
     
     // ═══════════════════════════════════════════════════════════════════════════
@@ -208,8 +126,7 @@ public class MultiTimeframeRSI extends Study {
     
     @Override
     public void initialize(Defaults defaults) {
-        settingsCache.invalidate();
-        calculationState.reset();
+        pipeline.reset();
         
         var sd = createSD();
         var tab = sd.addTab("Settings");
@@ -218,39 +135,65 @@ public class MultiTimeframeRSI extends Study {
         var perfGrp = tab.addGroup("Performance Settings");
         perfGrp.addRow(new IntegerDescriptor("maxLookback", "Max Candles to Calculate (0 = All)", 
             DEFAULT_MAX_LOOKBACK, 0, 10000, 100));
+        perfGrp.addRow(new BooleanDescriptor("floatCache", "Shared Cache Columns as Float (half memory)", false));
+        perfGrp.addRow(new DoubleDescriptor("warmupTolerance", "Warm-up Tolerance (RSI points, 0 = off)", 
+            0.0, 0.0, 10.0, 0.001));
+        perfGrp.addRow(new BooleanDescriptor("checkpoints", "Save Warm-start Checkpoints", false));
+        
+        // Normalization Settings
+        var normGrp = tab.addGroup("Normalization");
+        normGrp.addRow(new IntegerDescriptor("normLookback", "Percentile Lookback (bars)", 
+            DEFAULT_NORM_LOOKBACK, 10, 20000, 10));
         
         // RSI Method Settings
         var methodGrp = tab.addGroup("RSI Calculation Method");
         methodGrp.addRow(new MAMethodDescriptor("rsiMethod", "Method", Enums.MAMethod.EMA));
+        methodGrp.addRow(new DiscreteDescriptor("appliedPrice", "Applied Price (All RSIs)", PRICE_CLOSE, PRICE_OPTIONS));
+        methodGrp.addRow(new BooleanDescriptor("individualPrices", "Use Individual Applied Prices", false));
 
         // RSI 240 - Green
         var grp5 = tab.addGroup("RSI 240 (Primary)");
         grp5.addRow(new BooleanDescriptor("show5", "Show RSI", false));
         grp5.addRow(new DoubleDescriptor("period5", "Period", 240.0, 2.0, 500.0, 0.01));
+        grp5.addRow(new DiscreteDescriptor("tf5", "Timeframe", TF_CHART, TF_OPTIONS));
+        grp5.addRow(new DiscreteDescriptor("price5", "Applied Price", PRICE_CLOSE, PRICE_OPTIONS));
+        grp5.addRow(new BooleanDescriptor("norm5", "Percentile Normalize", false));
         grp5.addRow(new PathDescriptor("path5", "RSI Line", COLOR_GREEN, 3.0f, null, true, true, true));
         
         // RSI 60 - Black
         var grp4 = tab.addGroup("RSI 60 (Secondary)");
         grp4.addRow(new BooleanDescriptor("show4", "Show RSI", true));
         grp4.addRow(new DoubleDescriptor("period4", "Period", 60.0, 2.0, 300.0, 0.01));
+        grp4.addRow(new DiscreteDescriptor("tf4", "Timeframe", TF_CHART, TF_OPTIONS));
+        grp4.addRow(new DiscreteDescriptor("price4", "Applied Price", PRICE_CLOSE, PRICE_OPTIONS));
+        grp4.addRow(new BooleanDescriptor("norm4", "Percentile Normalize", false));
         grp4.addRow(new PathDescriptor("path4", "RSI Line", COLOR_BLACK, 2.0f, null, true, true, true));
         
         // RSI 30 - Blue
         var grp3 = tab.addGroup("RSI 30 (Tertiary)");
         grp3.addRow(new BooleanDescriptor("show3", "Show RSI", true));
         grp3.addRow(new DoubleDescriptor("period3", "Period", 30.0, 2.0, 100.0, 0.01));
+        grp3.addRow(new DiscreteDescriptor("tf3", "Timeframe", TF_CHART, TF_OPTIONS));
+        grp3.addRow(new DiscreteDescriptor("price3", "Applied Price", PRICE_CLOSE, PRICE_OPTIONS));
+        grp3.addRow(new BooleanDescriptor("norm3", "Percentile Normalize", false));
         grp3.addRow(new PathDescriptor("path3", "RSI Line", COLOR_BLUE, 1.8f, null, true, true, true));
         
         // RSI 15 - Red
         var grp2 = tab.addGroup("RSI 15 (Support)");
         grp2.addRow(new BooleanDescriptor("show2", "Show RSI", true));
         grp2.addRow(new DoubleDescriptor("period2", "Period", 15.0, 2.0, 100.0, 0.01));
+        grp2.addRow(new DiscreteDescriptor("tf2", "Timeframe", TF_CHART, TF_OPTIONS));
+        grp2.addRow(new DiscreteDescriptor("price2", "Applied Price", PRICE_CLOSE, PRICE_OPTIONS));
+        grp2.addRow(new BooleanDescriptor("norm2", "Percentile Normalize", false));
         grp2.addRow(new PathDescriptor("path2", "RSI Line", COLOR_RED, 1.2f, DASH_4_3, true, true, true));
         
         // RSI 5 - Gray
         var grp1 = tab.addGroup("RSI 5 (Fast)");
         grp1.addRow(new BooleanDescriptor("show1", "Show RSI", false));
         grp1.addRow(new DoubleDescriptor("period1", "Period", 5.0, 2.0, 100.0, 0.01));
+        grp1.addRow(new DiscreteDescriptor("tf1", "Timeframe", TF_CHART, TF_OPTIONS));
+        grp1.addRow(new DiscreteDescriptor("price1", "Applied Price", PRICE_CLOSE, PRICE_OPTIONS));
+        grp1.addRow(new BooleanDescriptor("norm1", "Percentile Normalize", false));
         grp1.addRow(new PathDescriptor("path1", "RSI Line", COLOR_DARK_GRAY, 1.0f, DASH_2_4, true, false, true));
         
         // Guides Tab
@@ -284,6 +227,20 @@ public class MultiTimeframeRSI extends Study {
         hundredGuide.setWidth(0.5f);
         guidesGrp.addRow(hundredGuide);
         
+        // Signals Tab (levels follow the overbought, middle and oversold guides)
+        var signalsTab = sd.addTab("Signals");
+        var eventsGrp = signalsTab.addGroup("Events (on bar close)");
+        eventsGrp.addRow(new BooleanDescriptor("signalCrosses", "Overbought/Oversold Crosses", false));
+        eventsGrp.addRow(new BooleanDescriptor("signalMidline", "Midline Crosses", false));
+        eventsGrp.addRow(new BooleanDescriptor("signalAlignment", "All Visible RSIs Aligned", false));
+        eventsGrp.addRow(new BooleanDescriptor("signalValues", "Export Alignment and Event Values", false));
+        
+        var markersGrp = signalsTab.addGroup("Markers");
+        markersGrp.addRow(new MarkerDescriptor("upMarker", "Upward Cross", 
+            Enums.MarkerType.TRIANGLE, Enums.Size.VERY_SMALL, COLOR_GREEN, COLOR_DARK_GRAY, true, true));
+        markersGrp.addRow(new MarkerDescriptor("downMarker", "Downward Cross", 
+            Enums.MarkerType.TRIANGLE, Enums.Size.VERY_SMALL, COLOR_RED, COLOR_DARK_GRAY, true, true));
+        
         setSettingsDescriptor(sd);
         
         // Runtime descriptor
@@ -295,6 +252,10 @@ public class MultiTimeframeRSI extends Study {
         desc.exportValue(new ValueDescriptor(Values.RSI3, "RSI (30)", KEY_P3));
         desc.exportValue(new ValueDescriptor(Values.RSI4, "RSI (60)", KEY_P4));
         desc.exportValue(new ValueDescriptor(Values.RSI5, "RSI (240)", KEY_P5));
+        desc.exportValue(new ValueDescriptor(Values.ALIGNMENT, "RSI Alignment", null));
+        desc.exportValue(new ValueDescriptor(Values.SIGNALS, "RSI Signal Events", null));
+        
+        for (Signals signal : SIGNALS) desc.declareSignal(signal, signal.label);
         
         desc.declarePath(Values.RSI1, "path1");
         desc.declarePath(Values.RSI2, "path2");
@@ -320,126 +281,219 @@ public class MultiTimeframeRSI extends Study {
     }
 
     
+    
     // ═══════════════════════════════════════════════════════════════════════════
     // MAIN CALCULATION
     // ═══════════════════════════════════════════════════════════════════════════
     
     @Override
     protected void calculate(int index, DataContext ctx) {
-        DataSeries series = ctx.getDataSeries();
-        if (series == null || series.size() == 0) return;
-        
-        int totalBars = series.size();
-        SettingsCache.SettingsSnapshot settings = settingsCache.updateIfNeeded(getSettings());
-        if (settings == null) return;
-        
-        if (!calculationState.shouldCalculate(index, totalBars, settings.maxLookback)) return;
+        ChartSeries series = chart(ctx);
+        if (series == null) return;
+        pipeline.calculate(index, series, settingsSource(getSettings()));
+    }
+    
+    @Override
+    protected void calculateValues(DataContext ctx) {
+        // Batch the closed history first; the per-bar pass then only has the live bar left
+        ChartSeries series = chart(ctx);
+        if (series != null) pipeline.calculateHistory(series, settingsSource(getSettings()));
+        super.calculateValues(ctx);
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // SIGNALS
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Draws the pipeline's signal events as markers, kept per bar so a rewind can
+     * remove them; the bar that just closed also raises MotiveWave signals.
+     */
+    private final class SignalMarkers implements RSIPipeline.Listener {
+        private Marker[] markers = new Marker[16];
+        private int[] markerBars = new int[16];
+        private int markerCount = 0;
+        
+        @Override
+        public void signal(int bar, long events, boolean latest) {
+            SettingsCache.SettingsSnapshot settings = pipeline.settings();
+            var studySettings = getSettings();
+            for (long bits = events; bits != 0; bits &= bits - 1) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                Signals signal;
+                String message;
+                if (bit < RSISignals.ALIGNED_SHIFT) {
+                    int line = bit / RSISignals.LINE_EVENTS;
+                    int kind = bit % RSISignals.LINE_EVENTS;
+                    signal = SIGNALS[kind];
+                    message = "RSI (" + periodLabel(settings.rsiPeriods[line]) + ") " + LINE_EVENT_TEXT[kind];
+                } else {
+                    signal = SIGNALS[RSISignals.LINE_EVENTS + bit - RSISignals.ALIGNED_SHIFT];
+                    message = signal.label;
+                }
+                double value = pipeline.eventValue(bit);
+                boolean up = UPWARD[signal.ordinal()];
+                MarkerInfo marker = (studySettings != null) ? studySettings.getMarker(up ? "upMarker" : "downMarker") : null;
+                if (marker != null && marker.isEnabled()) {
+                    add(bar, new Marker(new Coordinate(chart.series.getStartTime(bar), value), 
+                        up ? Enums.Position.BOTTOM : Enums.Position.TOP, marker, message));
+                }
+                if (latest) chart.ctx.signal(bar, signal, message, value);
+            }
+        }
         
-        // Calculate all RSIs
-        for (int i = 0; i < NUM_RSI; i++) {
-            if (!settings.showFlags[i]) {
-                series.setDouble(index, RSI_VALUES[i], Double.NaN);
-                continue;
+        @Override
+        public void retract(int bar) {
+            while (markerCount > 0 && markerBars[markerCount - 1] > bar) {
+                removeFigure(markers[--markerCount]);
+                markers[markerCount] = null;
             }
-            
-            double rsi = calculateRSI(series, index, settings.rsiPeriods[i], 
-                AVG_GAIN_VALUES[i], AVG_LOSS_VALUES[i], settings.rsiMethod);
-            series.setDouble(index, RSI_VALUES[i], rsi);
         }
         
-        calculationState.markCalculated(index);
+        private void add(int bar, Marker marker) {
+            if (markerCount == markers.length) {
+                markers = java.util.Arrays.copyOf(markers, markerCount * 2);
+                markerBars = java.util.Arrays.copyOf(markerBars, markerCount * 2);
+            }
+            markers[markerCount] = marker;
+            markerBars[markerCount++] = bar;
+            addFigure(marker);
+        }
+    }
+    
+    private static String periodLabel(double period) {
+        return (period == Math.rint(period)) ? Long.toString((long) period) : Double.toString(period);
     }
     
     // ═══════════════════════════════════════════════════════════════════════════
-    // RSI CALCULATION
+    // SDK ADAPTERS
     // ═══════════════════════════════════════════════════════════════════════════
     
-    private double calculateRSI(DataSeries series, int index, double period, 
-                                Values avgGainKey, Values avgLossKey, Enums.MAMethod method) {
-        if (series == null || period < 2.0 || index < 1) return Double.NaN;
-        
-        int periodInt = (int) Math.ceil(period);
-        if (index < periodInt) return Double.NaN;
-        
-        float currentClose = series.getClose(index);
-        float prevClose = series.getClose(index - 1);
-        if (Float.isNaN(currentClose) || Float.isNaN(prevClose)) return Double.NaN;
-        
-        double change = currentClose - prevClose;
-        double currentGain = (change > 0) ? change : 0.0;
-        double currentLoss = (change < 0) ? -change : 0.0;
-        
-        double avgGain, avgLoss;
-        double prevAvgGain = series.getDouble(index - 1, avgGainKey, Double.NaN);
-        double prevAvgLoss = series.getDouble(index - 1, avgLossKey, Double.NaN);
-        
-        if (Double.isNaN(prevAvgGain) || Double.isNaN(prevAvgLoss)) {
-            // First calculation - simple average
-            double sumGain = 0.0, sumLoss = 0.0;
-            for (int i = index - periodInt + 1; i <= index; i++) {
-                if (i < 1) continue;
-                float close = series.getClose(i);
-                float prev = series.getClose(i - 1);
-                if (Float.isNaN(close) || Float.isNaN(prev)) continue;
-                double chg = close - prev;
-                if (chg > 0) sumGain += chg;
-                else sumLoss += (-chg);
-            }
-            avgGain = sumGain / period;
-            avgLoss = sumLoss / period;
-        } else {
-            // Apply smoothing method
-            switch (method) {
-                case SMA:
-                    double sumGain = 0.0, sumLoss = 0.0;
-                    for (int i = index - periodInt + 1; i <= index; i++) {
-                        if (i < 1) continue;
-                        float close = series.getClose(i);
-                        float prev = series.getClose(i - 1);
-                        if (Float.isNaN(close) || Float.isNaN(prev)) continue;
-                        double chg = close - prev;
-                        if (chg > 0) sumGain += chg;
-                        else sumLoss += (-chg);
-                    }
-                    avgGain = sumGain / period;
-                    avgLoss = sumLoss / period;
-                    break;
-                case SMMA:
-                    // SMMA formula (alternative form of Wilder's)
-                    avgGain = ((prevAvgGain * (period - 1.0)) + currentGain) / period;
-                    avgLoss = ((prevAvgLoss * (period - 1.0)) + currentLoss) / period;
-                    break;
-                case WMA:
-                    double wSumGain = 0.0, wSumLoss = 0.0, wSum = 0.0;
-                    for (int i = 0; i < periodInt; i++) {
-                        int idx = index - periodInt + 1 + i;
-                        if (idx < 1) continue;
-                        float close = series.getClose(idx);
-                        float prev = series.getClose(idx - 1);
-                        if (Float.isNaN(close) || Float.isNaN(prev)) continue;
-                        double w = i + 1;
-                        double chg = close - prev;
-                        if (chg > 0) wSumGain += chg * w;
-                        else wSumLoss += (-chg) * w;
-                        wSum += w;
-                    }
-                    avgGain = wSum > 0 ? wSumGain / wSum : 0;
-                    avgLoss = wSum > 0 ? wSumLoss / wSum : 0;
-                    break;
-                default: // EMA - Wilder's RMA (alpha = 1/period)
-                    // This is what TradingView and standard RSI use
-                    double alpha = 1.0 / period;
-                    avgGain = (alpha * currentGain) + ((1.0 - alpha) * prevAvgGain);
-                    avgLoss = (alpha * currentLoss) + ((1.0 - alpha) * prevAvgLoss);
-                    break;
-            }
+    /** The context's series as an {@link RSIPipeline.Series}, reused while neither changes; null without bars */
+    private ChartSeries chart(DataContext ctx) {
+        DataSeries series = ctx.getDataSeries();
+        if (series == null || series.size() == 0) return null;
+        ChartSeries adapter = chart;
+        if (adapter == null || adapter.ctx != ctx || adapter.series != series) chart = adapter = new ChartSeries(ctx, series);
+        return adapter;
+    }
+    
+    /** Adapts a {@link DataSeries} and its chart to the SDK-free {@link RSIPipeline.Series} */
+    private static final class ChartSeries implements RSIPipeline.Series {
+        final DataContext ctx;
+        final DataSeries series;
+        
+        ChartSeries(DataContext ctx, DataSeries series) {
+            this.ctx = ctx;
+            this.series = series;
         }
         
-        series.setDouble(index, avgGainKey, avgGain);
-        series.setDouble(index, avgLossKey, avgLoss);
+        @Override
+        public int size() { return series.size(); }
+        
+        @Override
+        public long startTime(int index) { return series.getStartTime(index); }
+        
+        @Override
+        public float open(int index) { return series.getOpen(index); }
+        
+        @Override
+        public float high(int index) { return series.getHigh(index); }
         
-        if (avgLoss < 1e-10) return 100.0;
-        double rs = avgGain / avgLoss;
-        return Math.max(0.0, Math.min(100.0, 100.0 - (100.0 / (1.0 + rs))));
+        @Override
+        public float low(int index) { return series.getLow(index); }
+        
+        @Override
+        public float close(int index) { return series.getClose(index); }
+        
+        @Override
+        public double value(int index, int column) { return series.getDouble(index, COLUMNS[column], MISSING); }
+        
+        @Override
+        public void setValue(int index, int column, double value) { series.setDouble(index, COLUMNS[column], value); }
+        
+        @Override
+        public void clearValue(int index, int column) { series.setDouble(index, COLUMNS[column], null); }
+        
+        @Override
+        public String symbol() {
+            Instrument instrument = ctx.getInstrument();
+            return (instrument != null) ? instrument.getSymbol() : null;
+        }
+        
+        @Override
+        public String barSize() {
+            BarSize barSize = series.getBarSize();
+            return (barSize != null) ? barSize.toString() : null;
+        }
+        
+        @Override
+        public BarAggregator.Session session() {
+            Instrument instrument = ctx.getInstrument();
+            return (instrument != null) ? new InstrumentSession(instrument, ctx.isRTH()) : BarAggregator.Session.UTC;
+        }
+    }
+    
+    /** Trading days of the chart's instrument, for its RTH or full sessions */
+    private static final class InstrumentSession implements BarAggregator.Session {
+        final Instrument instrument;
+        final boolean rth;
+        
+        InstrumentSession(Instrument instrument, boolean rth) {
+            this.instrument = instrument;
+            this.rth = rth;
+        }
+        
+        @Override
+        public long startOfDay(long time) { return instrument.getStartOfDay(time, rth); }
+    }
+    
+    private SettingsCache.Source settingsSource(Settings settings) {
+        if (settings == null) return null;
+        SdkSettings source = settingsSource;
+        if (source == null || source.settings != settings) settingsSource = source = new SdkSettings(settings);
+        return source;
+    }
+    
+    /** Adapts MotiveWave {@link Settings} to the SDK-free {@link SettingsCache.Source} */
+    private static final class SdkSettings implements SettingsCache.Source {
+        final Settings settings;
+        
+        SdkSettings(Settings settings) {
+            this.settings = settings;
+        }
+        
+        @Override
+        public int getInteger(String key, int def) { return settings.getInteger(key, def); }
+        
+        @Override
+        public double getDouble(String key, double def) { return settings.getDouble(key, def); }
+        
+        @Override
+        public boolean getBoolean(String key, boolean def) { return settings.getBoolean(key, def); }
+        
+        @Override
+        public String getString(String key, String def) { return settings.getString(key, def); }
+        
+        @Override
+        public double getGuide(String key, double def) {
+            GuideInfo guide = settings.getGuide(key);
+            return (guide != null) ? guide.getValue() : def;
+        }
+        
+        @Override
+        public RSIEngine.Method getMethod(String key) {
+            return toEngineMethod(settings.getMAMethod(key, Enums.MAMethod.EMA));
+        }
+    }
+    
+    private static RSIEngine.Method toEngineMethod(Enums.MAMethod method) {
+        if (method == null) return RSIEngine.Method.EMA;
+        switch (method) {
+            case SMA: return RSIEngine.Method.SMA;
+            case SMMA: return RSIEngine.Method.SMMA;
+            case WMA: return RSIEngine.Method.WMA;
+            default: return RSIEngine.Method.EMA;
+        }
     }
 }
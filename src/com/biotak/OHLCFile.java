@@ -0,0 +1,287 @@
+package com.biotak;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * OHLC bars loaded from a memory-mapped file
+ * خواندن کندل‌ها از فایل باینری یا CSV با نگاشت حافظه
+ *
+ * Two formats are read, both through a read-only {@link MappedByteBuffer}:
+ * <ul>
+ *   <li>Binary (column-major, little-endian): int magic {@code "OHLC"}, int version 1,
+ *       int bar count, int reserved, then {@code long[count]} bar start times
+ *       (epoch millis, UTC) followed by {@code float[count]} opens, highs, lows and
+ *       closes. Each column is copied out with one bulk read.</li>
+ *   <li>CSV: {@code time,open,high,low,close[,...]}, one bar per line, oldest first;
+ *       separators {@code , ; tab}. Time is epoch millis (or seconds), or an ISO date
+ *       / date-time taken as UTC. A leading header line is skipped. MetaTrader
+ *       exports read as they are: MT4 {@code 2024.01.02,13:05,open,...} and MT5
+ *       {@code <DATE>\t<TIME>\t<OPEN>...}, where the date may use dots and a
+ *       separate {@code HH:MM[:SS]} column right after it is added to the date.</li>
+ * </ul>
+ * Files must be under 2 GB.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class OHLCFile {
+
+    static final int MAGIC = 0x434C484F; // "OHLC" read little-endian
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    final long[] times;
+    final float[] open;
+    final float[] high;
+    final float[] low;
+    final float[] close;
+    final int size;
+
+    private OHLCFile(long[] times, float[] open, float[] high, float[] low, float[] close, int size) {
+        this.times = times;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.size = size;
+    }
+
+    /** Reads {@code path}; binary when it starts with the magic number, CSV otherwise */
+    static OHLCFile read(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) throw new IOException(path + ": files over 2 GB are not supported");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (length >= HEADER_BYTES && buffer.getInt(0) == MAGIC) return readBinary(path, buffer);
+            return readCsv(path, buffer);
+        }
+    }
+
+    /** Writes these bars in the binary format */
+    void write(Path path) throws IOException {
+        long length = HEADER_BYTES + (long) size * (Long.BYTES + 4 * Float.BYTES);
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0);
+            buffer.asLongBuffer().put(times, 0, size);
+            buffer.position(buffer.position() + size * Long.BYTES);
+            for (float[] column : new float[][] {open, high, low, close}) {
+                buffer.asFloatBuffer().put(column, 0, size);
+                buffer.position(buffer.position() + size * Float.BYTES);
+            }
+            buffer.force();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // BINARY
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    private static OHLCFile readBinary(Path path, ByteBuffer buffer) throws IOException {
+        int version = buffer.getInt(4);
+        int count = buffer.getInt(8);
+        if (version != VERSION) throw new IOException(path + ": unsupported version " + version);
+        long expected = HEADER_BYTES + (long) count * (Long.BYTES + 4 * Float.BYTES);
+        if (count < 0 || expected > buffer.capacity()) throw new IOException(path + ": truncated (" + count + " bars)");
+
+        long[] times = new long[count];
+        float[][] columns = new float[4][count];
+        buffer.position(HEADER_BYTES);
+        buffer.asLongBuffer().get(times);
+        buffer.position(HEADER_BYTES + count * Long.BYTES);
+        for (float[] column : columns) {
+            buffer.asFloatBuffer().get(column);
+            buffer.position(buffer.position() + count * Float.BYTES);
+        }
+        return new OHLCFile(times, columns[0], columns[1], columns[2], columns[3], count);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // CSV
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    private static OHLCFile readCsv(Path path, ByteBuffer buffer) throws IOException {
+        // ~40 bytes per line is a fair first guess; columns grow as needed
+        int capacity = Math.max(16, buffer.capacity() / 40);
+        long[] times = new long[capacity];
+        float[] o = new float[capacity], h = new float[capacity], l = new float[capacity], c = new float[capacity];
+        double[] fields = new double[4];
+        int count = 0, line = 0;
+        int pos = 0, limit = buffer.capacity();
+
+        while (pos < limit) {
+            int end = pos;
+            while (end < limit && buffer.get(end) != '\n') end++;
+            int lineEnd = (end > pos && buffer.get(end - 1) == '\r') ? end - 1 : end;
+            line++;
+            if (lineEnd > pos) {
+                int sep = nextSeparator(buffer, pos, lineEnd);
+                long time = parseTime(buffer, pos, sep);
+                int p = sep + 1;
+                if (time != Long.MIN_VALUE && p <= lineEnd) {
+                    // MetaTrader: the time of day in its own column
+                    int q = nextSeparator(buffer, p, lineEnd);
+                    long timeOfDay = parseTimeOfDay(buffer, p, q);
+                    if (timeOfDay >= 0) {
+                        time += timeOfDay;
+                        p = q + 1;
+                    }
+                }
+                boolean valid = time != Long.MIN_VALUE;
+                for (int f = 0; f < 4 && valid; f++) {
+                    if (p > lineEnd) { valid = false; break; }
+                    int q = nextSeparator(buffer, p, lineEnd);
+                    fields[f] = parseNumber(buffer, p, q);
+                    valid = !Double.isNaN(fields[f]);
+                    p = q + 1;
+                }
+                if (valid) {
+                    if (count == times.length) {
+                        int grown = count + (count >> 1);
+                        times = Arrays.copyOf(times, grown);
+                        o = Arrays.copyOf(o, grown); h = Arrays.copyOf(h, grown);
+                        l = Arrays.copyOf(l, grown); c = Arrays.copyOf(c, grown);
+                    }
+                    times[count] = time;
+                    o[count] = (float) fields[0];
+                    h[count] = (float) fields[1];
+                    l[count] = (float) fields[2];
+                    c[count] = (float) fields[3];
+                    count++;
+                } else if (count > 0 || line > 1) {
+                    // Only the first line may be a header
+                    throw new IOException(path + ":" + line + ": cannot parse \"" + text(buffer, pos, lineEnd) + "\"");
+                }
+            }
+            pos = end + 1;
+        }
+        return new OHLCFile(times, o, h, l, c, count);
+    }
+
+    private static int nextSeparator(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == ',' || b == ';' || b == '\t') return i;
+        }
+        return to;
+    }
+
+    /**
+     * Epoch millis; digits only are millis (or seconds when below 1e11), otherwise ISO
+     * date[-time], with {@code yyyy.MM.dd} dates accepted as well
+     */
+    private static long parseTime(ByteBuffer buffer, int from, int to) {
+        from = skipSpace(buffer, from, to);
+        to = trimSpace(buffer, from, to);
+        if (from >= to) return Long.MIN_VALUE;
+        long value = 0;
+        boolean digits = true;
+        for (int i = from; i < to && digits; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9' && i - from < 18) value = value * 10 + (b - '0');
+            else digits = false;
+        }
+        if (digits) return value < 100_000_000_000L ? value * 1000L : value;
+
+        String s = text(buffer, from, to).replace(' ', 'T');
+        if (s.length() >= 10 && s.charAt(4) == '.' && s.charAt(7) == '.') {
+            s = s.substring(0, 4) + '-' + s.substring(5, 7) + '-' + s.substring(8);
+        }
+        try {
+            if (s.length() == 10) return LocalDate.parse(s).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+            return LocalDateTime.parse(s).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /** Millis since midnight of {@code H:MM}, {@code HH:MM} or {@code HH:MM:SS}, or -1 for anything else */
+    private static long parseTimeOfDay(ByteBuffer buffer, int from, int to) {
+        from = skipSpace(buffer, from, to);
+        to = trimSpace(buffer, from, to);
+        long millis = 0;
+        int fields = 0;
+        int i = from;
+        while (i < to) {
+            int digits = 0, value = 0;
+            for (; i < to && digits < 2; i++, digits++) {
+                byte b = buffer.get(i);
+                if (b < '0' || b > '9') break;
+                value = value * 10 + (b - '0');
+            }
+            if (digits == 0 || (fields > 0 && digits != 2) || value >= (fields == 0 ? 24 : 60)) return -1;
+            millis = millis * 60 + value;
+            if (++fields == 3 || i == to) break;
+            if (buffer.get(i++) != ':') return -1;
+        }
+        if (i != to || fields < 2) return -1;
+        return (fields == 2 ? millis * 60 : millis) * 1000L;
+    }
+
+    /** Plain decimals are parsed in place; anything else (exponents, NaN) via Double.parseDouble */
+    private static double parseNumber(ByteBuffer buffer, int from, int to) {
+        from = skipSpace(buffer, from, to);
+        to = trimSpace(buffer, from, to);
+        if (from >= to) return Double.NaN;
+        int i = from;
+        boolean negative = buffer.get(i) == '-';
+        if (negative || buffer.get(i) == '+') i++;
+        long mantissa = 0;
+        int scale = 0, digits = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (digits < 17) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (fraction) scale++;
+                } else if (!fraction) {
+                    scale--;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                try {
+                    return Double.parseDouble(text(buffer, from, to));
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        double value = (scale >= 0) ? mantissa / Math.pow(10, scale) : mantissa * Math.pow(10, -scale);
+        return negative ? -value : value;
+    }
+
+    private static int skipSpace(ByteBuffer buffer, int from, int to) {
+        while (from < to && (buffer.get(from) == ' ' || buffer.get(from) == '"')) from++;
+        return from;
+    }
+
+    private static int trimSpace(ByteBuffer buffer, int from, int to) {
+        while (to > from && (buffer.get(to - 1) == ' ' || buffer.get(to - 1) == '"')) to--;
+        return to;
+    }
+
+    private static String text(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
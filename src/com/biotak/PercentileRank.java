@@ -0,0 +1,120 @@
+package com.biotak;
+
+import java.util.Arrays;
+
+/**
+ * Rolling percentile rank of RSI values
+ * رتبه صدکی RSI نسبت به مقادیر اخیر همان خط
+ *
+ * Ranks each value against the last {@code lookback} values of its own series,
+ * itself included: the share of those values below it, with equal values
+ * counted half, scaled to 0-100. Values are quantized to 0.01 RSI points and
+ * counted in a Fenwick tree, so adding, removing and ranking a value are
+ * O(log {@link #LEVELS}) whatever the lookback. Bars are fed in index order;
+ * feeding the last bar again replaces its value (a tick), and any other jump
+ * rebuilds the window from the series' history.
+ * NaN values occupy their bar but are not counted.
+ *
+ * Not thread-safe.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class PercentileRank {
+
+    /** Quantization levels over [0, 100] */
+    static final int LEVELS = 10_001;
+    private static final double SCALE = (LEVELS - 1) / 100.0;
+
+    /** Earlier values of the ranked series, for rebuilding after a jump */
+    interface History {
+        double value(int index);
+    }
+
+    private final int[] tree = new int[LEVELS + 1];
+    private int[] window = new int[0];
+    private int lookback = 0;
+    private int count = 0;
+    private int lastIndex = -1;
+
+    /** Sets the lookback (at least 1) and forgets all values */
+    void configure(int lookback) {
+        this.lookback = Math.max(1, lookback);
+        if (window.length != this.lookback) window = new int[this.lookback];
+        reset();
+    }
+
+    int lookback() { return lookback; }
+
+    void reset() {
+        Arrays.fill(tree, 0);
+        Arrays.fill(window, -1);
+        count = 0;
+        lastIndex = -1;
+    }
+
+    /**
+     * Records {@code value} as bar {@code index} and returns its percentile among the
+     * last {@code lookback} bars; NaN for a NaN value. {@code history} supplies the
+     * bars before {@code index} when they were not fed in order.
+     */
+    double update(int index, double value, History history) {
+        if (index != lastIndex && index != lastIndex + 1) {
+            rebuild(index, history);
+        } else if (index == lastIndex + 1) {
+            lastIndex = index;
+        }
+        int slot = index % lookback;
+        // The slot holds the bar leaving the window, or this bar's previous tick
+        remove(window[slot]);
+        int level = level(value);
+        window[slot] = level;
+        add(level);
+        return rank(level);
+    }
+
+    private void rebuild(int index, History history) {
+        reset();
+        for (int i = Math.max(0, index - lookback + 1); i < index; i++) {
+            int level = level(history.value(i));
+            window[i % lookback] = level;
+            add(level);
+        }
+        lastIndex = index;
+    }
+
+    private double rank(int level) {
+        if (level < 0 || count == 0) return Double.NaN;
+        int below = prefix(level);
+        int equal = prefix(level + 1) - below;
+        return 100.0 * (below + 0.5 * equal) / count;
+    }
+
+    private static int level(double value) {
+        if (Double.isNaN(value)) return -1;
+        return (int) Math.max(0, Math.min(LEVELS - 1, Math.round(value * SCALE)));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // FENWICK TREE
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    private void add(int level) {
+        if (level < 0) return;
+        for (int i = level + 1; i <= LEVELS; i += i & -i) tree[i]++;
+        count++;
+    }
+
+    private void remove(int level) {
+        if (level < 0) return;
+        for (int i = level + 1; i <= LEVELS; i += i & -i) tree[i]--;
+        count--;
+    }
+
+    /** Number of counted values at levels below {@code level} */
+    private int prefix(int level) {
+        int sum = 0;
+        for (int i = level; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+}
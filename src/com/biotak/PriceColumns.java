@@ -0,0 +1,99 @@
+package com.biotak;
+
+import java.util.Arrays;
+
+/**
+ * Derived price columns shared by the lines of one engine
+ * ستون‌های قیمت اعمال‌شده، یک بار برای هر کندل
+ *
+ * Holds one float row per distinct {@link AppliedPrice} among the enabled
+ * lines, in the order first used. Each bar's OHLC is read once and every row
+ * is derived from it, so lines on the same price share one column (and, in
+ * {@link RSIEngine}, one bar-to-bar change). Rows are either a power-of-two
+ * ring ({@link #useRing}) or plain arrays indexed by bar that grow as bars are
+ * stored; {@link #mask()} is what engines take as the index mask.
+ *
+ * Not thread-safe.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class PriceColumns {
+
+    /** OHLC of the bars a column is derived from */
+    interface Bars {
+        float open(int index);
+        float high(int index);
+        float low(int index);
+        float close(int index);
+    }
+
+    private final int[] lineRows;
+    private AppliedPrice[] prices = {AppliedPrice.CLOSE};
+    private float[][] rows = {new float[64]};
+    private int mask = -1;
+    private boolean closeOnly = true;
+
+    PriceColumns(int numLines) {
+        this.lineRows = new int[numLines];
+    }
+
+    /** One row per distinct price of the enabled lines (a close row when none is enabled) */
+    void configure(AppliedPrice[] linePrices, boolean[] enabled) {
+        AppliedPrice[] distinct = new AppliedPrice[lineRows.length];
+        int count = 0;
+        for (int l = 0; l < lineRows.length; l++) {
+            lineRows[l] = 0;
+            if (!enabled[l]) continue;
+            int row = 0;
+            while (row < count && distinct[row] != linePrices[l]) row++;
+            if (row == count) distinct[count++] = linePrices[l];
+            lineRows[l] = row;
+        }
+        if (count == 0) distinct[count++] = AppliedPrice.CLOSE;
+        prices = Arrays.copyOf(distinct, count);
+        closeOnly = count == 1 && prices[0] == AppliedPrice.CLOSE;
+        int length = rows[0].length;
+        rows = new float[count][length];
+    }
+
+    /** Stores bar {@code i} at {@code i & (capacity - 1)} from now on; {@code capacity} is a power of two */
+    void useRing(int capacity) {
+        mask = capacity - 1;
+        if (rows[0].length != capacity) rows = new float[rows.length][capacity];
+    }
+
+    /** Row holding {@code line}'s price, per line; the array is owned by this object */
+    int[] lineRows() { return lineRows; }
+
+    int rowCount() { return rows.length; }
+
+    /** True when every row is the close, so a bar needs only its close */
+    boolean closeOnly() { return closeOnly; }
+
+    float[][] rows() { return rows; }
+
+    int mask() { return mask; }
+
+    /** Derives bar {@code index} into every row from one read of its OHLC */
+    void load(Bars bars, int index) {
+        if (closeOnly) {
+            ensureCapacity(index);
+            rows[0][index & mask] = bars.close(index);
+            return;
+        }
+        store(index, bars.open(index), bars.high(index), bars.low(index), bars.close(index));
+    }
+
+    /** Derives bar {@code index} into every row from the given OHLC */
+    void store(int index, float open, float high, float low, float close) {
+        ensureCapacity(index);
+        for (int r = 0; r < rows.length; r++) rows[r][index & mask] = prices[r].of(open, high, low, close);
+    }
+
+    private void ensureCapacity(int index) {
+        if (mask >= 0 || index < rows[0].length) return;
+        int cap = Math.max(index + 1, rows[0].length + (rows[0].length >> 1));
+        for (int r = 0; r < rows.length; r++) rows[r] = Arrays.copyOf(rows[r], cap);
+    }
+}
@@ -0,0 +1,474 @@
+package com.biotak;
+
+import java.util.Arrays;
+
+/**
+ * Fused multi-period RSI kernel
+ * محاسبه همزمان چند RSI در یک پیمایش
+ *
+ * Works on primitive close arrays and keeps the smoothing state of every line
+ * in struct-of-arrays form, so a single pass over the bars computes the
+ * close-to-close change once and updates all periods from it. Lines may read
+ * different source rows (see {@link PriceColumns}); each row's change is then
+ * computed once per bar and shared by the lines on it.
+ *
+ * Semantics match the original per-line {@code calculateRSI}: a line is seeded
+ * with a simple average of the last {@code ceil(period)} changes whenever its
+ * previous state is missing, and a NaN close leaves the line unseeded.
+ * The SMA/WMA windows (and the seed) come from running plain/weighted sums,
+ * so every method costs O(1) per bar and line.
+ *
+ * Instances are not thread-safe; callers drive one engine from one thread.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class RSIEngine {
+
+    /** Smoothing method; anything other than SMA/SMMA/WMA behaves as Wilder's EMA */
+    enum Method { EMA, SMA, SMMA, WMA }
+
+    // Per-line state, field-major: state[FIELD * numLines + line]
+    private static final int AVG_GAIN = 0;
+    private static final int AVG_LOSS = 1;
+    private static final int SUM_GAIN = 2;   // plain sums over the last ceil(period) changes
+    private static final int SUM_LOSS = 3;
+    private static final int W_GAIN = 4;     // linearly weighted sums (newest weight = period)
+    private static final int W_LOSS = 5;
+    private static final int W_SUM = 6;      // sum of weights of valid (non-NaN) changes
+    private static final int COUNT = 7;      // number of valid changes in the window
+    private static final int NUM_FIELDS = 8;
+    
+    // Running window sums are rebuilt from scratch every RESUM_INTERVAL bars to cap drift
+    private static final int RESUM_INTERVAL = 4096;
+
+    private final int numLines;
+    private final double[] periods;
+    private final int[] periodInts;
+    private final boolean[] enabled;
+    private final int[] sources;
+    private int numSources = 1;
+    private Method method = Method.EMA;
+    private int maxPeriodInt = 0;
+
+    // State after lastIndex (NaN avg = unseeded) and before it (for re-ticks)
+    private final double[] state;
+    private final double[] prevState;
+    private final double[] lastRsi;
+    private final double[] prevRsi;
+    private int lastIndex = -1;
+    private boolean windowsValid = false;
+    private boolean prevWindowsValid = false;
+    private boolean retick = false;
+
+    // Close-to-close change per source row and bar, NaN when either close is missing.
+    // A ring of the last ceil(maxPeriod) + 1 bars is all the sliding windows ever read.
+    private double[][] changes = new double[1][2];
+    private int changeMask = 1;
+
+    // Source rows for the current compute() call; ring sources pass their index mask
+    private float[][] closeF;
+    private double[][] closeD;
+    private final float[][] singleF = new float[1][];
+    private final double[][] singleD = new double[1][];
+    private int closeMask = -1;
+
+    RSIEngine(int numLines) {
+        this.numLines = numLines;
+        this.periods = new double[numLines];
+        this.periodInts = new int[numLines];
+        this.enabled = new boolean[numLines];
+        this.sources = new int[numLines];
+        this.state = new double[NUM_FIELDS * numLines];
+        this.prevState = new double[NUM_FIELDS * numLines];
+        this.lastRsi = new double[numLines];
+        this.prevRsi = new double[numLines];
+        reset();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // CONFIGURATION
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** Applies new periods/flags/method and discards all smoothing state; every line reads one close row */
+    void configure(double[] linePeriods, boolean[] lineEnabled, Method smoothing) {
+        configure(linePeriods, lineEnabled, smoothing, null);
+    }
+
+    /**
+     * Same, with line {@code l} reading source row {@code lineSources[l]} (null = row 0).
+     * Callers then pass at least {@code max(lineSources) + 1} rows.
+     */
+    void configure(double[] linePeriods, boolean[] lineEnabled, Method smoothing, int[] lineSources) {
+        int max = 0;
+        int rows = 1;
+        for (int l = 0; l < numLines; l++) {
+            periods[l] = linePeriods[l];
+            enabled[l] = lineEnabled[l];
+            sources[l] = (lineSources != null) ? lineSources[l] : 0;
+            periodInts[l] = (linePeriods[l] >= 2.0) ? (int) Math.ceil(linePeriods[l]) : 0;
+            if (enabled[l]) {
+                max = Math.max(max, periodInts[l]);
+                rows = Math.max(rows, sources[l] + 1);
+            }
+        }
+        this.method = (smoothing != null) ? smoothing : Method.EMA;
+        this.maxPeriodInt = max;
+        this.numSources = rows;
+        int capacity = Integer.highestOneBit(Math.max(2, max + 1) * 2 - 1);
+        if (changes.length != rows || changes[0].length != capacity) changes = new double[rows][capacity];
+        changeMask = capacity - 1;
+        reset();
+    }
+
+    void reset() {
+        unseed();
+        System.arraycopy(state, 0, prevState, 0, state.length);
+        prevWindowsValid = false;
+        Arrays.fill(lastRsi, Double.NaN);
+        Arrays.fill(prevRsi, Double.NaN);
+        lastIndex = -1;
+    }
+    
+    private void unseed() {
+        Arrays.fill(state, AVG_GAIN * numLines, (AVG_LOSS + 1) * numLines, Double.NaN);
+        windowsValid = false;
+    }
+
+    int lastIndex() { return lastIndex; }
+
+    /** Longest enabled window in bars (the history a cold start needs) */
+    int maxPeriod() { return maxPeriodInt; }
+
+    /** RSI of {@code line} at {@link #lastIndex()} */
+    double rsi(int line) { return lastRsi[line]; }
+
+    /** RSI of {@code line} at {@code lastIndex() - 1}, the last committed (closed) bar */
+    double committedRsi(int line) { return prevRsi[line]; }
+
+    /** Extra bars the enabled lines need before a window, per {@link #warmupBars(Method, double, double)} */
+    int warmupBars(double tolerance) {
+        int bars = 0;
+        for (int l = 0; l < numLines; l++) {
+            if (enabled[l] && periodInts[l] > 0) bars = Math.max(bars, warmupBars(method, periods[l], tolerance));
+        }
+        return bars;
+    }
+
+    /**
+     * Number of bars to compute before the first visible bar so that a seeded
+     * line is within {@code tolerance} RSI points of its full-history value.
+     * <p>
+     * EMA/SMMA with α = 1/period: the seeded and the full-history recurrences see
+     * the same changes after the seed, so their gain and loss averages differ by
+     * exactly (1 - α)^k times their gap at the seed. RSI is then a mix of the
+     * seed's RSI and the RSI of the k later changes, the seed weighing at most
+     * (1 - α)^k as long as the bars since the seed move at least as much on
+     * average as the seed's averages did. Two RSI values differ by at most 100
+     * points, so k = ceil(ln(tolerance / 100) / ln(1 - α)) bounds the error by
+     * {@code tolerance}. SMA depends only on its window (exact immediately); WMA
+     * only differs on the SMA-seeded first bar. A tolerance of 0 disables warm-up.
+     */
+    static int warmupBars(Method method, double period, double tolerance) {
+        if (tolerance <= 0.0 || period < 2.0) return 0;
+        switch (method) {
+            case SMA: return 0;
+            case WMA: return 1;
+            default:
+                if (tolerance >= 100.0) return 0;
+                double bars = Math.log(tolerance / 100.0) / Math.log(1.0 - 1.0 / period);
+                return (int) Math.min(Integer.MAX_VALUE / 2, Math.ceil(bars));
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // STATE TRANSFER
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** Number of doubles describing one line's smoothing state */
+    static int lineStateSize() { return NUM_FIELDS; }
+
+    /** Copies the state of {@code line} after the committed bar {@code lastIndex() - 1} */
+    void exportCommittedState(int line, double[] dst) {
+        for (int f = 0; f < NUM_FIELDS; f++) dst[f] = prevState[f * numLines + line];
+    }
+
+    /** Copies the state of {@code line} after {@code lastIndex()} */
+    void exportState(int line, double[] dst) {
+        for (int f = 0; f < NUM_FIELDS; f++) dst[f] = state[f * numLines + line];
+    }
+
+    /**
+     * Resumes from externally computed state: {@code lineStates[line]} is the state
+     * after bar {@code index} (null for disabled lines). {@code close} must cover
+     * {@code [index - maxPeriod(), index]} so the sliding windows can continue.
+     */
+    void importState(float[] close, int mask, int index, double[][] lineStates) {
+        singleF[0] = close;
+        importState(singleF, mask, index, lineStates);
+    }
+
+    /** Same as {@link #importState(float[], int, int, double[][])} over per-line source rows */
+    void importState(float[][] rows, int mask, int index, double[][] lineStates) {
+        setSource(rows, null, mask);
+        for (int i = Math.max(1, index - maxPeriodInt + 1); i <= index; i++) loadChanges(i);
+        clearSource();
+        Arrays.fill(state, Double.NaN);
+        for (int l = 0; l < numLines; l++) {
+            lastRsi[l] = Double.NaN;
+            if (!enabled[l] || lineStates[l] == null) continue;
+            for (int f = 0; f < NUM_FIELDS; f++) state[f * numLines + l] = lineStates[l][f];
+            double gain = state[AVG_GAIN * numLines + l], loss = state[AVG_LOSS * numLines + l];
+            if (!Double.isNaN(gain) && !Double.isNaN(loss)) lastRsi[l] = toRsi(gain, loss);
+        }
+        System.arraycopy(state, 0, prevState, 0, state.length);
+        Arrays.fill(prevRsi, Double.NaN);
+        windowsValid = true;
+        prevWindowsValid = true;
+        retick = false;
+        lastIndex = index;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // COMPUTATION
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /**
+     * Computes bars {@code [from, to)} from float closes.
+     * {@code out[line][bar]} receives each RSI when {@code out} (or a row) is non-null.
+     */
+    void compute(float[] close, int from, int to, double[][] out) {
+        compute(close, -1, from, to, out);
+    }
+
+    /**
+     * Same as {@link #compute(float[], int, int, double[][])} over a power-of-two ring:
+     * bar {@code i} is read from {@code close[i & mask]}. The ring must hold the
+     * bars being computed plus {@code maxPeriod()} before them.
+     */
+    void compute(float[] close, int mask, int from, int to, double[][] out) {
+        compute(close, mask, from, to, out, 0);
+    }
+
+    /**
+     * Ring variant writing {@code out[line][bar - outFrom]}; bars before
+     * {@code outFrom} are computed but not stored. Lets callers compute a long
+     * range in chunks without bar-indexed output arrays.
+     */
+    void compute(float[] close, int mask, int from, int to, double[][] out, int outFrom) {
+        singleF[0] = close;
+        compute(singleF, mask, from, to, out, outFrom);
+    }
+
+    /**
+     * Ring variant over per-line source rows: line {@code l} reads
+     * {@code rows[source(l)][i & mask]} (see {@link #configure(double[], boolean[], Method, int[])}).
+     */
+    void compute(float[][] rows, int mask, int from, int to, double[][] out, int outFrom) {
+        if (to <= from) return;
+        setSource(rows, null, mask);
+        run(from, to, out, outFrom);
+        clearSource();
+    }
+
+    /** Double-precision variant of {@link #compute(float[], int, int, double[][])} */
+    void compute(double[] close, int from, int to, double[][] out) {
+        if (to <= from) return;
+        singleD[0] = close;
+        setSource(null, singleD, -1);
+        run(from, to, out, 0);
+        clearSource();
+    }
+
+    private void setSource(float[][] f, double[][] d, int mask) {
+        closeF = f;
+        closeD = d;
+        closeMask = mask;
+    }
+
+    private void clearSource() {
+        closeF = null;
+        closeD = null;
+        singleF[0] = null;
+        singleD[0] = null;
+    }
+
+    /** Reads bar {@code i}'s change of every source row into the rings */
+    private void loadChanges(int i) {
+        for (int s = 0; s < numSources; s++) {
+            double change;
+            if (closeF != null) {
+                float c = closeF[s][i & closeMask], p = closeF[s][(i - 1) & closeMask];
+                // float subtraction, widened - identical to getClose() arithmetic
+                change = (Float.isNaN(c) || Float.isNaN(p)) ? Double.NaN : (double) (c - p);
+            } else {
+                double c = closeD[s][i & closeMask], p = closeD[s][(i - 1) & closeMask];
+                change = (Double.isNaN(c) || Double.isNaN(p)) ? Double.NaN : c - p;
+            }
+            changes[s][i & changeMask] = change;
+        }
+    }
+
+    /** Aligns state with {@code from}, loading the seed window after a discontinuity */
+    private void prepare(int from) {
+        if (lastIndex >= 0 && from == lastIndex) {
+            // Re-tick of the last bar: roll back to the committed state before it
+            System.arraycopy(prevState, 0, state, 0, state.length);
+            windowsValid = prevWindowsValid;
+            lastIndex = from - 1;
+            retick = true;
+            return;
+        }
+        if (from != lastIndex + 1) {
+            // Discontinuity: reseed every line from its own window
+            unseed();
+            lastIndex = from - 1;
+            for (int i = Math.max(1, from - maxPeriodInt + 1); i < from; i++) loadChanges(i);
+        }
+    }
+
+    private void run(int from, int to, double[][] out, int outFrom) {
+        prepare(from);
+        for (int i = from; i < to; i++) {
+            if (retick) {
+                retick = false; // prevState already holds the committed state
+            } else if (i == to - 1) {
+                // Only the state before the last bar can be rolled back to
+                System.arraycopy(state, 0, prevState, 0, state.length);
+                System.arraycopy(lastRsi, 0, prevRsi, 0, numLines);
+                prevWindowsValid = windowsValid;
+            }
+            if (i >= 1) loadChanges(i);
+            boolean rebuild = !windowsValid || (i & (RESUM_INTERVAL - 1)) == 0;
+
+            for (int l = 0; l < numLines; l++) {
+                double rsi = Double.NaN;
+                if (enabled[l] && periodInts[l] > 0) {
+                    double change = (i >= 1) ? changes[sources[l]][i & changeMask] : Double.NaN;
+                    if (rebuild) rebuildWindow(l, i);
+                    else slideWindow(l, i, change);
+                    rsi = step(l, i, change);
+                }
+                lastRsi[l] = rsi;
+                if (out != null && out[l] != null && i >= outFrom) out[l][i - outFrom] = rsi;
+            }
+            windowsValid = true;
+            lastIndex = i;
+        }
+    }
+
+    private double step(int l, int index, double change) {
+        int n = numLines;
+        if (index < periodInts[l] || Double.isNaN(change)) {
+            state[AVG_GAIN * n + l] = Double.NaN;
+            state[AVG_LOSS * n + l] = Double.NaN;
+            return Double.NaN;
+        }
+
+        double period = periods[l];
+        double currentGain = (change > 0) ? change : 0.0;
+        double currentLoss = (change < 0) ? -change : 0.0;
+        double prevGain = state[AVG_GAIN * n + l];
+        double prevLoss = state[AVG_LOSS * n + l];
+        double gain, loss;
+
+        if (Double.isNaN(prevGain) || Double.isNaN(prevLoss) || method == Method.SMA) {
+            // First calculation (or SMA) - simple average of the window
+            gain = state[SUM_GAIN * n + l] / period;
+            loss = state[SUM_LOSS * n + l] / period;
+        } else {
+            switch (method) {
+                case SMMA:
+                    gain = ((prevGain * (period - 1.0)) + currentGain) / period;
+                    loss = ((prevLoss * (period - 1.0)) + currentLoss) / period;
+                    break;
+                case WMA:
+                    double wSum = state[W_SUM * n + l];
+                    gain = wSum > 0 ? state[W_GAIN * n + l] / wSum : 0;
+                    loss = wSum > 0 ? state[W_LOSS * n + l] / wSum : 0;
+                    break;
+                default: // EMA - Wilder's RMA (alpha = 1/period)
+                    double alpha = 1.0 / period;
+                    gain = (alpha * currentGain) + ((1.0 - alpha) * prevGain);
+                    loss = (alpha * currentLoss) + ((1.0 - alpha) * prevLoss);
+                    break;
+            }
+        }
+
+        state[AVG_GAIN * n + l] = gain;
+        state[AVG_LOSS * n + l] = loss;
+        return toRsi(gain, loss);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // SLIDING WINDOW SUMS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /**
+     * O(1) window update from bar {@code index - 1} to {@code index}.
+     * Every weight drops by one (the leaving change had weight 1) and the
+     * entering change gets weight {@code period}; NaN changes count as absent.
+     */
+    private void slideWindow(int l, int index, double change) {
+        int n = numLines;
+        int p = periodInts[l];
+        int leavingIdx = index - p;
+        double leaving = (leavingIdx >= 1) ? changes[sources[l]][leavingIdx & changeMask] : Double.NaN;
+
+        double sumGain = state[SUM_GAIN * n + l];
+        double sumLoss = state[SUM_LOSS * n + l];
+        double wGain = state[W_GAIN * n + l] - sumGain;
+        double wLoss = state[W_LOSS * n + l] - sumLoss;
+        double wSum = state[W_SUM * n + l] - state[COUNT * n + l];
+        double count = state[COUNT * n + l];
+
+        if (!Double.isNaN(leaving)) {
+            if (leaving > 0) sumGain -= leaving;
+            else sumLoss -= (-leaving);
+            count -= 1.0;
+        }
+        if (!Double.isNaN(change)) {
+            if (change > 0) { sumGain += change; wGain += change * p; }
+            else { sumLoss += (-change); wLoss += (-change) * p; }
+            wSum += p;
+            count += 1.0;
+        }
+
+        state[SUM_GAIN * n + l] = sumGain;
+        state[SUM_LOSS * n + l] = sumLoss;
+        state[W_GAIN * n + l] = wGain;
+        state[W_LOSS * n + l] = wLoss;
+        state[W_SUM * n + l] = wSum;
+        state[COUNT * n + l] = count;
+    }
+
+    /** Re-sums the window ending at {@code index} from the change ring */
+    private void rebuildWindow(int l, int index) {
+        int n = numLines;
+        int p = periodInts[l];
+        double sumGain = 0.0, sumLoss = 0.0, wGain = 0.0, wLoss = 0.0, wSum = 0.0, count = 0.0;
+        for (int k = 0; k < p; k++) {
+            int idx = index - p + 1 + k;
+            if (idx < 1) continue;
+            double chg = changes[sources[l]][idx & changeMask];
+            if (Double.isNaN(chg)) continue;
+            double w = k + 1;
+            if (chg > 0) { sumGain += chg; wGain += chg * w; }
+            else { sumLoss += (-chg); wLoss += (-chg) * w; }
+            wSum += w;
+            count += 1.0;
+        }
+        state[SUM_GAIN * n + l] = sumGain;
+        state[SUM_LOSS * n + l] = sumLoss;
+        state[W_GAIN * n + l] = wGain;
+        state[W_LOSS * n + l] = wLoss;
+        state[W_SUM * n + l] = wSum;
+        state[COUNT * n + l] = count;
+    }
+
+    static double toRsi(double avgGain, double avgLoss) {
+        if (avgLoss < 1e-10) return 100.0;
+        double rs = avgGain / avgLoss;
+        return Math.max(0.0, Math.min(100.0, 100.0 - (100.0 / (1.0 + rs))));
+    }
+}
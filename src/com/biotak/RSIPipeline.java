@@ -0,0 +1,1120 @@
+package com.biotak;
+
+/**
+ * Per-bar path of the multi-timeframe RSI study
+ * مسیر محاسبه هر کندل، مستقل از MotiveWave
+ *
+ * Everything {@link MultiTimeframeRSI} does for a bar once its settings are read:
+ * the unchanged-tick and window checks, the chart lines' fused {@link RSIEngine}
+ * step (or the shared columns another chart computed), rewind snapshots,
+ * checkpoints, higher-timeframe groups, normalization and signal events, plus the
+ * batched cold start. Bars are read and values written through {@link Series};
+ * the study adapts MotiveWave's DataSeries to it, benchmarks an array. Signal
+ * events go to a {@link Listener}, which draws and raises them.
+ *
+ * Not thread-safe: MotiveWave calls a study from one thread at a time.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class RSIPipeline {
+    
+    /**
+     * Bars in and values out. Columns are numbered like the study's exported values:
+     * {@code line} for a line's shown value, then {@link #ALIGNMENT} and {@link #SIGNALS}.
+     */
+    interface Series extends PriceColumns.Bars {
+        int size();
+        
+        long startTime(int index);
+        
+        /** NaN when {@code index} has no value in {@code column} */
+        double value(int index, int column);
+        
+        void setValue(int index, int column, double value);
+        
+        /** Leaves no value at {@code index} in {@code column} */
+        void clearValue(int index, int column);
+        
+        /** Instrument symbol, or null when unknown: no shared columns or checkpoints then */
+        String symbol();
+        
+        /** Bar size name, or null when unknown */
+        String barSize();
+        
+        /** Trading days the higher-timeframe buckets are cut on */
+        BarAggregator.Session session();
+    }
+    
+    /** Receives the signal events of closed bars (see {@link RSISignals}) */
+    interface Listener {
+        /** Events of closed bar {@code bar}; {@code latest} when it is the bar that just closed */
+        void signal(int bar, long events, boolean latest);
+        
+        /** Withdraws what was reported for bars after {@code bar} (all of them for -1) */
+        void retract(int bar);
+        
+        /** Drops every event */
+        Listener NONE = new Listener() {
+            @Override
+            public void signal(int bar, long events, boolean latest) {}
+            
+            @Override
+            public void retract(int bar) {}
+        };
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // HIGHER TIMEFRAME GROUP
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Lines bound to one higher timeframe: a shared aggregator over the chart's
+     * bars, cut on the instrument's trading days, plus an engine over the aggregated
+     * bars' applied prices. Each base bar updates only
+     * the forming HTF bar; completed HTF values are step-mapped onto their base bars.
+     * Normalized lines are ranked against their own last {@code normLookback} HTF bars.
+     */
+    private static class TimeframeGroup {
+        final long tfMillis;
+        final BarAggregator aggregator;
+        final RSIEngine engine = new RSIEngine(NUM_RSI);
+        final PriceColumns prices = new PriceColumns(NUM_RSI);
+        final boolean[] lines = new boolean[NUM_RSI];
+        private final int warmupBars;
+        private final RewindRing snapshots = new RewindRing(NUM_RSI, HTF_REWIND_INTERVAL);
+        private final double[][] states = new double[NUM_RSI][RSIEngine.lineStateSize()];
+        private final PercentileRank[] ranks = new PercentileRank[NUM_RSI];
+        private final PercentileRank.History[] histories = new PercentileRank.History[NUM_RSI];
+        private final double[][] rawHistory = new double[NUM_RSI][];
+        private final double[] ranked = new double[NUM_RSI];
+        private int lastHtfIndex = -1;
+        // Forming HTF bar whose whole step was last written live, and the values written
+        private final double[] filled = new double[NUM_RSI];
+        private int filledHtfIndex = -1;
+        
+        TimeframeGroup(long tfMillis, SettingsCache.SettingsSnapshot settings, BarAggregator.Session session) {
+            this.tfMillis = tfMillis;
+            this.aggregator = new BarAggregator(tfMillis, session);
+            for (int i = 0; i < NUM_RSI; i++) {
+                lines[i] = settings.showFlags[i] && settings.timeframes[i] == tfMillis;
+                if (!lines[i] || !settings.normFlags[i]) continue;
+                int line = i;
+                ranks[i] = new PercentileRank();
+                ranks[i].configure(settings.normLookback);
+                rawHistory[i] = new double[64];
+                histories[i] = k -> rawHistory[line][k];
+            }
+            prices.configure(settings.prices, lines);
+            engine.configure(settings.rsiPeriods, lines, settings.rsiMethod, prices.lineRows());
+            warmupBars = engine.warmupBars(settings.warmupTolerance);
+            snapshots.configure(lines);
+        }
+        
+        void reset() {
+            aggregator.reset();
+            engine.reset();
+            snapshots.clear();
+            for (PercentileRank rank : ranks) {
+                if (rank != null) rank.reset();
+            }
+            lastHtfIndex = -1;
+            filledHtfIndex = -1;
+        }
+        
+        void calculate(Series series, int index, int windowStart, boolean live) {
+            int lastBase = aggregator.lastBaseIndex();
+            if (lastBase == index) {
+                // Tick: refresh the forming HTF bar; its step is rewritten only if the value moved
+                advance(series, index, windowStart, live);
+                return;
+            }
+            if (lastBase != index - 1) {
+                // Rewound: restore the bucket before this bar's and refeed that bucket only
+                int from = (lastBase > index) ? rewind(index) : -1;
+                if (from < 0) {
+                    // Cold start or jump: rebuild enough HTF bars to seed the longest line.
+                    // A rewind past the snapshots restarts where its window was computed from.
+                    from = warmupStart(series, (lastBase > index) ? windowStart : index);
+                    reset();
+                }
+                for (int j = from; j < index; j++) {
+                    advance(series, j, windowStart, false);
+                }
+            }
+            advance(series, index, windowStart, live);
+        }
+        
+        /** Returns the first base bar to feed after restoring the state before {@code index}'s bucket, or -1 */
+        private int rewind(int index) {
+            int k = aggregator.indexOfBase(index);
+            int slot = (k > 0) ? snapshots.find(k - 1) : -1;
+            if (slot < 0) return -1;
+            int bar = snapshots.bar(slot);
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (lines[i]) snapshots.copyState(slot, i, states[i]);
+            }
+            int from = aggregator.firstBaseIndex(k);
+            aggregator.truncate(k);
+            snapshots.truncate(k - 1);
+            engine.importState(prices.rows(), -1, bar, states);
+            if (bar + 1 < k) engine.compute(prices.rows(), -1, bar + 1, k, null, 0);
+            // Bucket k - 1 is refilled when k completes again: rank it from its recorded value
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (ranks[i] != null) ranked[i] = ranks[i].update(k - 1, rawHistory[i][k - 1], histories[i]);
+            }
+            lastHtfIndex = k - 1;
+            filledHtfIndex = -1;
+            return from;
+        }
+        
+        private void advance(Series series, int index, int windowStart, boolean live) {
+            int k = aggregator.update(index, series.startTime(index), series.open(index),
+                series.high(index), series.low(index), series.close(index));
+            derive(k);
+            if (lastHtfIndex >= 0 && k != lastHtfIndex) {
+                // Previous HTF bar completed: engine still holds its final values
+                fill(series, Math.max(aggregator.firstBaseIndex(lastHtfIndex), windowStart), index - 1);
+                if (snapshots.isSnapshotBar(lastHtfIndex)) {
+                    for (int i = 0; i < NUM_RSI; i++) {
+                        if (!lines[i]) continue;
+                        engine.exportState(i, states[i]);
+                        snapshots.put(i, lastHtfIndex, aggregator.bucketOf(series.startTime(index - 1)), 
+                            aggregator.closes()[lastHtfIndex], states[i]);
+                    }
+                }
+            }
+            engine.compute(prices.rows(), -1, k, k + 1, null, 0);
+            rank(k, index >= windowStart);
+            lastHtfIndex = k;
+            if (index < windowStart) return;
+            // Live edge keeps the whole forming step current; history fills it on completion
+            if (live && !fillsUnchanged(k)) {
+                fill(series, Math.max(aggregator.firstBaseIndex(k), windowStart), index);
+                for (int i = 0; i < NUM_RSI; i++) {
+                    if (lines[i]) filled[i] = shown(i);
+                }
+                filledHtfIndex = k;
+            } else {
+                fill(series, index, index);
+            }
+        }
+        
+        /** True when the forming HTF bar {@code k} was already written live with its current values */
+        private boolean fillsUnchanged(int k) {
+            if (filledHtfIndex != k) return false;
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (lines[i] && Double.doubleToLongBits(shown(i)) != Double.doubleToLongBits(filled[i])) return false;
+            }
+            return true;
+        }
+        
+        private double shown(int i) {
+            return (ranks[i] != null) ? ranked[i] : engine.rsi(i);
+        }
+        
+        /** Derives the applied prices of HTF bar {@code k} from its current OHLC */
+        private void derive(int k) {
+            prices.store(k, aggregator.opens()[k], aggregator.highs()[k], aggregator.lows()[k], aggregator.closes()[k]);
+        }
+        
+        /** Ranks HTF bar {@code k} of each normalized line; bars before the window are left out */
+        private void rank(int k, boolean inWindow) {
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (ranks[i] == null) continue;
+                double raw = inWindow ? engine.rsi(i) : Double.NaN;
+                if (k >= rawHistory[i].length) {
+                    rawHistory[i] = java.util.Arrays.copyOf(rawHistory[i], Math.max(k + 1, rawHistory[i].length * 2));
+                }
+                rawHistory[i][k] = raw;
+                ranked[i] = ranks[i].update(k, raw, histories[i]);
+            }
+        }
+        
+        private void fill(Series series, int from, int to) {
+            // Ranks read rawHistory, so only the shown value is written
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (!lines[i]) continue;
+                double rsi = shown(i);
+                for (int j = from; j <= to; j++) series.setValue(j, i, rsi);
+            }
+        }
+        
+        private int warmupStart(Series series, int index) {
+            int needed = engine.maxPeriod() + 2 + warmupBars;
+            long key = aggregator.bucketOf(series.startTime(index));
+            int buckets = 1;
+            int j = index;
+            while (j > 0) {
+                long prevKey = aggregator.bucketOf(series.startTime(j - 1));
+                if (prevKey != key) {
+                    if (++buckets > needed) break;
+                    key = prevKey;
+                }
+                j--;
+            }
+            return j;
+        }
+    }
+    
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // CONSTANTS
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    private static final int NUM_RSI = SettingsCache.NUM_RSI;
+    static final int ALIGNMENT = NUM_RSI;
+    static final int SIGNALS = ALIGNMENT + 1;
+    private static final double[] ALIGNMENT_VALUES = {-2.0, -1.0, 0.0, 1.0, 2.0};
+    private static final int MIN_PRICE_RING = 1024;
+    
+    private final Listener listener;
+    private final SettingsCache settingsCache = new SettingsCache();
+    private final CalculationState calculationState = new CalculationState();
+    private final StudyMetrics metrics = new StudyMetrics(settingsCache, calculationState, this::cacheLockWaitNanos);
+    
+    // Fused RSI kernel + close ring (driven sequentially by calculate()).
+    // Smoothing state lives in the engine; only RSI1..RSI5 are stored per bar.
+    private final RSIEngine engine = new RSIEngine(NUM_RSI);
+    private SettingsCache.SettingsSnapshot engineSettings = null;
+    private int warmupBars = 0;
+    private TimeframeGroup[] timeframeGroups = new TimeframeGroup[0];
+    // Start times of the series' first bar and of the bar every line is seeded at
+    // (the window start less the warm-up); either moving invalidates derived state
+    private long firstBarTime = Long.MIN_VALUE;
+    private long seedTime = Long.MIN_VALUE;
+    private int seedBar = 0;
+    
+    // Range-batched first pass (see calculateHistory); per-line engines, built on first use.
+    // Below BULK_MIN_WORK bars times chart lines the per-bar pass is done in microseconds.
+    private static final int BULK_MIN_WORK = 1_024;
+    private final BulkRSI bulk = new BulkRSI(NUM_RSI);
+    private SettingsCache.SettingsSnapshot bulkSettings = null;
+    
+    // Engine snapshots every REWIND_INTERVAL bars: a rewound series (bar replay)
+    // restarts from the nearest one instead of recomputing the window
+    private static final int REWIND_INTERVAL = 256;
+    private static final int HTF_REWIND_INTERVAL = 16;
+    private final RewindRing rewindRing = new RewindRing(NUM_RSI, REWIND_INTERVAL);
+    
+    // Percentile ranks of normalized chart-timeframe lines over their raw columns (null = raw)
+    private final PercentileRank[] ranks = new PercentileRank[NUM_RSI];
+    private final PercentileRank.History[] rankHistories = new PercentileRank.History[NUM_RSI];
+    // Raw RSI per bar of each normalized chart-timeframe line, the history its rank
+    // window reads; NaN where not computed, null for lines that are not normalized
+    private final double[][] rawValues = new double[NUM_RSI][];
+    
+    // Persistent warm-start checkpoints for chart-timeframe lines (null key = not checkpointed)
+    private final CheckpointStore.Key[] checkpointKeys = new CheckpointStore.Key[NUM_RSI];
+    private final java.util.List<java.util.List<CheckpointStore.Checkpoint>> checkpoints =
+        new java.util.ArrayList<>(java.util.Collections.nCopies(NUM_RSI, null));
+    private boolean checkpointsDirty = false;
+    // The engine's states follow the whole loaded history: seeded at bar 0 or resumed
+    // from a checkpoint. Only then are checkpoints recorded or resumed per bar.
+    private boolean fullHistory = false;
+    
+    // Shared columns for chart-timeframe lines (null = line not cached)
+    private final SharedRSICache.Entry[] cacheEntries = new SharedRSICache.Entry[NUM_RSI];
+    private final double[][] cacheStates = new double[NUM_RSI][RSIEngine.lineStateSize()];
+    private final double[][] importStates = new double[NUM_RSI][];
+    private final double[] lineState = new double[RSIEngine.lineStateSize()];
+    private boolean hasCacheEntries = false;
+    private int followIndex = -1;
+    private int followStart = -1;
+    private double[] copyBuffer = null;
+    
+    // Applied prices of the chart lines, one ring row per distinct price (see loadPrices)
+    private final PriceColumns prices = new PriceColumns(NUM_RSI);
+    private int pricesFrom = 0;
+    private int pricesTo = -1;
+    
+    // Level-cross and alignment events of closed bars (see emitSignals)
+    private final RSISignals signals = new RSISignals(NUM_RSI);
+    private final double[] signalInputs = new double[NUM_RSI];
+    
+    RSIPipeline(Listener listener) {
+        this.listener = listener;
+    }
+    
+    StudyMetrics metrics() { return metrics; }
+    
+    /** Settings the engines were last configured with, or null */
+    SettingsCache.SettingsSnapshot settings() { return engineSettings; }
+    
+    /** Forgets every computed value and state; settings are read again on the next call */
+    void reset() {
+        settingsCache.invalidate();
+        calculationState.reset();
+        resetEngine();
+    }
+    
+    /** {@link #reset} after MotiveWave cleared the study's values */
+    void clear() {
+        reset();
+        metrics.stateCleared();
+    }
+    
+    void settingsChanged() {
+        // Settings are only re-read after an edit, never per calculate() call
+        settingsCache.markChanged();
+    }
+    
+    void destroy() {
+        saveCheckpoints();
+        releaseCacheEntries();
+        metrics.unregister();
+    }
+    
+    private void resetEngine() {
+        engine.reset();
+        rewindRing.clear();
+        engineSettings = null;
+        bulkSettings = null;
+        timeframeGroups = new TimeframeGroup[0];
+        firstBarTime = Long.MIN_VALUE;
+        seedTime = Long.MIN_VALUE;
+        releaseCacheEntries();
+        pricesFrom = 0;
+        pricesTo = -1;
+        signals.reset();
+        listener.retract(-1);
+        for (double[] values : rawValues) {
+            if (values != null) java.util.Arrays.fill(values, Double.NaN);
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // MAIN CALCULATION
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /** Computes bar {@code index}; {@code source} is read only after {@link #settingsChanged} */
+    void calculate(int index, Series series, SettingsCache.Source source) {
+        if (series.size() == 0) return;
+        
+        int totalBars = series.size();
+        SettingsCache.SettingsSnapshot settings = settingsCache.updateIfNeeded(source);
+        if (settings == null) return;
+        
+        long priceKey = priceKey(series, index, settings);
+        // Tick on the live bar without new prices: the RSI cannot have changed
+        if (calculationState.isUnchangedTick(index, totalBars, priceKey)) {
+            metrics.skipped(true);
+            return;
+        }
+        
+        if (!calculationState.shouldCalculate(index, totalBars, settings.maxLookback)) {
+            metrics.skipped(false);
+            return;
+        }
+        long started = metrics.begin();
+        
+        if (settings != engineSettings || series.startTime(0) != firstBarTime) {
+            configureEngines(settings, series);
+        }
+        int first = calculationState.snapshot().firstCalculatedIndex();
+        syncSeed(series, first);
+        
+        // History another chart already computed is copied from the shared cache
+        if (!followSharedCache(series, index, settings)) {
+            // Contiguous bars need only their own close; a cold start needs the seed window
+            int last = engine.lastIndex();
+            if (last != index && last != index - 1) truncateCheckpoints(series, index);
+            if (last != index && last != index - 1 && !resumeFromSnapshot(series, index)) {
+                // Cold start. Bars already in the window (a rewind past the snapshots)
+                // were computed from the seed bar, so start there again unless they
+                // followed the whole history and a checkpoint is closer
+                metrics.coldStart(index, last > index);
+                if (!fullHistory || !resumeFromCheckpoint(series, index)) replay(series, seedBar, index);
+            }
+            last = engine.lastIndex();
+            int loadFrom = (last == index || last == index - 1) ? index - 1 : index - engine.maxPeriod();
+            loadPrices(series, Math.max(0, loadFrom), index);
+            
+            // One fused pass updates all RSIs; just copy results into the series.
+            // On a re-tick the engine recomputes only this bar from the committed state.
+            engine.compute(prices.rows(), prices.mask(), index, index + 1, null, 0);
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (settings.showFlags[i] && settings.timeframes[i] != 0) continue;
+                writeRsi(series, index, i, engine.rsi(i));
+            }
+            publishToSharedCache(index, totalBars, last == index - 1);
+            recordSnapshot(series, index, totalBars, last == index - 1);
+            recordCheckpoint(series, index, totalBars, last == index - 1);
+        }
+        
+        // Higher-timeframe lines: one aggregator + engine per distinct timeframe
+        boolean live = index == totalBars - 1;
+        for (TimeframeGroup group : timeframeGroups) {
+            group.calculate(series, index, first, live);
+        }
+        
+        calculationState.markCalculated(index, totalBars, priceKey);
+        if (checkpointsDirty && index == totalBars - 1) saveCheckpoints();
+        metrics.end(StudyMetrics.Path.BAR, started, 1);
+        
+        // The previous bar is final now, higher-timeframe steps included
+        if (settings.signals && index > 0) emitSignals(series, settings, index - 1);
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // BULK HISTORY
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Cold start (first load or after clearState): computes every closed bar of the
+     * window in one call, chart lines in parallel, then hands the final state to the
+     * per-bar engine. Anything else is left to {@link #calculate}. Checkpoint files
+     * are read here as well, never on the per-bar path.
+     */
+    void calculateHistory(Series series, SettingsCache.Source source) {
+        if (series.size() < 2) return;
+        int totalBars = series.size();
+        
+        SettingsCache.SettingsSnapshot settings = settingsCache.updateIfNeeded(source);
+        if (settings == null) return;
+        // Syncs the window with the series; a warm state is continued per bar
+        if (!calculationState.shouldCalculate(totalBars - 1, totalBars, settings.maxLookback)) return;
+        var snapshot = calculationState.snapshot();
+        int first = snapshot.firstCalculatedIndex();
+        if (settings != engineSettings || series.startTime(0) != firstBarTime) {
+            configureEngines(settings, series);
+        }
+        syncSeed(series, first);
+        loadCheckpoints();
+        
+        int end = totalBars - 1; // the live bar stays on the per-bar path
+        boolean[] chartLines = new boolean[NUM_RSI];
+        int lineCount = 0;
+        for (int i = 0; i < NUM_RSI; i++) {
+            chartLines[i] = settings.showFlags[i] && settings.timeframes[i] == 0;
+            if (chartLines[i]) lineCount++;
+        }
+        if ((long) (end - first) * lineCount < BULK_MIN_WORK) return;
+        if (snapshot.lastCalculatedIndex() >= first) return;
+        // History another chart already computed is copied from the shared columns
+        if (hasCacheEntries && cacheCovers(first)) {
+            copySharedHistory(series, settings, first, end);
+            return;
+        }
+        long started = metrics.begin();
+        
+        if (bulkSettings != settings) {
+            bulk.configure(settings.rsiPeriods, chartLines, settings.rsiMethod, settings.prices);
+            bulk.setStateInterval(REWIND_INTERVAL);
+            bulkSettings = settings;
+        }
+        
+        if (bulk.hasLines()) {
+            // A checkpoint before the window replaces the seed and any warm-up. Without
+            // a lookback the window is the whole history: the newest checkpoint up to
+            // the last closed bar replaces every bar through it, which is left empty.
+            int resumeBar = restoreCheckpointStates(series, (settings.maxLookback > 0) ? first : end);
+            int from = seedBar;
+            if (resumeBar >= 0) {
+                from = resumeBar + 1;
+                first = Math.max(first, from);
+                fullHistory = true;
+            }
+            // Nothing closed since the checkpoint: its states are imported as they are
+            if (from < end) {
+                bulk.compute(series, from, end, first, new BulkRSI.Sink() {
+                    @Override
+                    public void write(int line, int start, double[] values, int offset, int count) {
+                        for (int k = 0; k < count; k++) writeRsi(series, start + k, line, values[offset + k]);
+                        bulk.exportState(line, lineState);
+                        SharedRSICache.Entry entry = cacheEntries[line];
+                        if (entry != null) entry.appendRange(start, values, offset, count, lineState);
+                        addCheckpoint(series, line, start + count - 1, lineState);
+                    }
+                    
+                    @Override
+                    public void state(int line, int bar, double[] state) {
+                        rewindRing.put(line, bar, series.startTime(bar), series.close(bar), state);
+                    }
+                }, resumeBar >= 0 ? importStates : null);
+                for (int i = 0; i < NUM_RSI; i++) {
+                    importStates[i] = null;
+                    if (!chartLines[i]) continue;
+                    bulk.exportState(i, cacheStates[i]);
+                    importStates[i] = cacheStates[i];
+                }
+            }
+            loadPrices(series, Math.max(0, end - 1 - engine.maxPeriod()), end - 1);
+            engine.importState(prices.rows(), prices.mask(), end - 1, importStates);
+        }
+        // Hidden lines are NaN, as calculate() would write them
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (settings.showFlags[i]) continue;
+            for (int j = first; j < end; j++) writeRsi(series, j, i, Double.NaN);
+        }
+        
+        for (TimeframeGroup group : timeframeGroups) {
+            for (int j = first; j < end; j++) group.calculate(series, j, first, false);
+        }
+        calculationState.markCalculated(end - 1, totalBars, priceKey(series, end - 1, settings));
+        metrics.end(StudyMetrics.Path.HISTORY, started, end - first);
+        saveCheckpoints();
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // NORMALIZATION
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Writes the value a chart-timeframe (or hidden) line shows: its RSI, or its percentile when
+     * normalized. Only normalized lines keep their raw RSI, the history their rank window reads.
+     */
+    private void writeRsi(Series series, int index, int line, double raw) {
+        PercentileRank rank = ranks[line];
+        if (rank == null) {
+            series.setValue(index, line, raw);
+            return;
+        }
+        double[] values = rawValues[line];
+        if (index >= values.length) {
+            int length = values.length;
+            values = rawValues[line] = java.util.Arrays.copyOf(values, Math.max(index + 1, 2 * length));
+            java.util.Arrays.fill(values, length, values.length, Double.NaN);
+        }
+        values[index] = raw;
+        series.setValue(index, line, rank.update(index, raw, rankHistories[line]));
+    }
+    
+    private void configureRanks(SettingsCache.SettingsSnapshot settings, boolean[] chartLines) {
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (!chartLines[i] || !settings.normFlags[i]) {
+                ranks[i] = null;
+                rawValues[i] = null;
+                continue;
+            }
+            if (ranks[i] == null) ranks[i] = new PercentileRank();
+            ranks[i].configure(settings.normLookback);
+            rawValues[i] = new double[0];
+            if (rankHistories[i] == null) {
+                int line = i;
+                rankHistories[i] = j -> (j < rawValues[line].length) ? rawValues[line][j] : Double.NaN;
+            }
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // SIGNALS
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Feeds the closed bars up to {@code closed} to the signal engine: each bar once, after
+     * the bar following it was computed. Live-bar ticks never signal and cost one comparison.
+     * A cold start evaluates the window once; a rewind retracts the events after {@code closed}
+     * and continues from its values.
+     */
+    private void emitSignals(Series series, SettingsCache.SettingsSnapshot settings, int closed) {
+        int last = signals.lastIndex();
+        if (closed == last) return;
+        if (closed < last) {
+            listener.retract(closed);
+            signals.prime(closed, signalInputs(series, closed));
+            return;
+        }
+        int totalBars = series.size();
+        if (last < 0) {
+            int start = calculationState.snapshot().firstCalculatedIndex();
+            if (closed < start) return;
+            signals.prime(start, signalInputs(series, start));
+            last = start;
+        }
+        long started = metrics.begin();
+        for (int j = last + 1; j <= closed; j++) {
+            long events = signals.update(j, signalInputs(series, j), closingLines(series, settings, j));
+            if (settings.signalValues) {
+                series.setValue(j, ALIGNMENT, ALIGNMENT_VALUES[signals.alignment() + 2]);
+                if (events != 0) series.setValue(j, SIGNALS, events);
+                else series.clearValue(j, SIGNALS);
+            }
+            if (events != 0) listener.signal(j, events, j == totalBars - 2);
+        }
+        metrics.end(StudyMetrics.Path.SIGNALS, started, closed - last);
+    }
+    
+    private double[] signalInputs(Series series, int bar) {
+        for (int i = 0; i < NUM_RSI; i++) signalInputs[i] = series.value(bar, i);
+        return signalInputs;
+    }
+    
+    /** Value an event bit of the last reported bar refers to: the line's RSI, or the aligned level */
+    double eventValue(int bit) {
+        if (bit < RSISignals.ALIGNED_SHIFT) return signalInputs[bit / RSISignals.LINE_EVENTS];
+        int kind = bit - RSISignals.ALIGNED_SHIFT;
+        return (kind == RSISignals.ALIGNED_OVERBOUGHT) ? signals.overbought()
+            : (kind == RSISignals.ALIGNED_OVERSOLD) ? signals.oversold() : signals.midline();
+    }
+    
+    /** Lines whose bar closes at {@code bar}: chart lines always, higher timeframes on their last base bar */
+    private int closingLines(Series series, SettingsCache.SettingsSnapshot settings, int bar) {
+        long time = series.startTime(bar);
+        long next = series.startTime(bar + 1);
+        int mask = 0;
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (settings.timeframes[i] == 0) mask |= 1 << i;
+        }
+        for (TimeframeGroup group : timeframeGroups) {
+            // Same buckets as the lines were aggregated on
+            if (group.aggregator.bucketOf(time) == group.aggregator.bucketOf(next)) continue;
+            for (int i = 0; i < NUM_RSI; i++) {
+                if (group.lines[i]) mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+    
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // REWIND SNAPSHOTS
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /** Cold start at {@code index}: restores the newest snapshot of an unchanged bar before it and replays the gap */
+    private boolean resumeFromSnapshot(Series series, int index) {
+        long started = metrics.begin();
+        int slot = rewindRing.find(index - 1);
+        while (slot >= 0) {
+            int bar = rewindRing.bar(slot);
+            if (series.startTime(bar) == rewindRing.time(slot) 
+                    && Float.floatToRawIntBits(series.close(bar)) == Float.floatToRawIntBits(rewindRing.close(slot))) {
+                for (int i = 0; i < NUM_RSI; i++) {
+                    importStates[i] = null;
+                    if (!chartLine(i)) continue;
+                    rewindRing.copyState(slot, i, cacheStates[i]);
+                    importStates[i] = cacheStates[i];
+                }
+                loadPrices(series, Math.max(0, bar - engine.maxPeriod()), bar);
+                engine.importState(prices.rows(), prices.mask(), bar, importStates);
+                replay(series, bar + 1, index);
+                metrics.end(StudyMetrics.Path.REWIND, started, index - bar - 1);
+                return true;
+            }
+            // That bar changed: later snapshots depend on it too
+            rewindRing.truncate(bar - 1);
+            slot = rewindRing.find(bar - 1);
+        }
+        return false;
+    }
+    
+    /** Snapshots the state after a closed bar every {@link #REWIND_INTERVAL} bars */
+    private void recordSnapshot(Series series, int index, int totalBars, boolean newBar) {
+        boolean closed = index < totalBars - 1;
+        if (!closed && !newBar) return;
+        int bar = closed ? index : index - 1;
+        if (bar < 0 || !rewindRing.isSnapshotBar(bar)) return;
+        long time = series.startTime(bar);
+        float close = series.close(bar);
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (!chartLine(i)) continue;
+            if (closed) engine.exportState(i, lineState);
+            else engine.exportCommittedState(i, lineState);
+            rewindRing.put(i, bar, time, close, lineState);
+        }
+    }
+    
+    private boolean chartLine(int line) {
+        return engineSettings.showFlags[line] && engineSettings.timeframes[line] == 0;
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // CHECKPOINTS
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /**
+     * Keys the chart lines' checkpoints; a line whose key is unchanged keeps the
+     * checkpoints in memory, the others are read again by {@link #loadCheckpoints}.
+     */
+    private void configureCheckpoints(SettingsCache.SettingsSnapshot settings, Series series) {
+        saveCheckpoints();
+        String symbol = series.symbol();
+        String barSize = series.barSize();
+        for (int i = 0; i < NUM_RSI; i++) {
+            CheckpointStore.Key key = null;
+            if (settings.checkpoints && symbol != null && barSize != null && settings.showFlags[i] 
+                    && settings.timeframes[i] == 0 && settings.rsiPeriods[i] >= 2.0) {
+                key = new CheckpointStore.Key(symbol, barSize, settings.rsiMethod, settings.rsiPeriods[i], 
+                    settings.prices[i]);
+            }
+            if (!java.util.Objects.equals(key, checkpointKeys[i])) checkpoints.set(i, null);
+            checkpointKeys[i] = key;
+        }
+    }
+    
+    /**
+     * Reads the files of the lines not loaded yet. Runs from calculateHistory only, so
+     * per-bar calls never touch the disk; checkpoints are validated when resumed from.
+     */
+    private void loadCheckpoints() {
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (checkpointKeys[i] != null && checkpoints.get(i) == null) {
+                checkpoints.set(i, CheckpointStore.load(checkpointKeys[i]));
+            }
+        }
+    }
+    
+    /** Resumes the engine from the newest checkpoint before {@code index} and replays up to the bar before */
+    private boolean resumeFromCheckpoint(Series series, int index) {
+        int bar = restoreCheckpointStates(series, index);
+        if (bar < 0) return false;
+        loadPrices(series, Math.max(0, bar - engine.maxPeriod()), bar);
+        engine.importState(prices.rows(), prices.mask(), bar, importStates);
+        replay(series, bar + 1, index);
+        return true;
+    }
+    
+    /**
+     * Finds the newest bar before {@code index} for which every checkpointed line has a
+     * checkpoint whose tail bars are unchanged; fills {@code importStates} and returns
+     * the bar, or -1.
+     */
+    private int restoreCheckpointStates(Series series, int index) {
+        int anchor = -1;
+        for (int i = 0; i < NUM_RSI && anchor < 0; i++) if (checkpoints.get(i) != null) anchor = i;
+        if (anchor < 0) return -1;
+        
+        var candidates = checkpoints.get(anchor);
+        for (int c = candidates.size() - 1; c >= 0; c--) {
+            long barTime = candidates.get(c).barTime();
+            int bar = indexOfTime(series, barTime, index - 1);
+            if (bar < 0) continue;
+            boolean valid = true;
+            for (int i = 0; i < NUM_RSI && valid; i++) {
+                importStates[i] = null;
+                if (checkpointKeys[i] == null) continue;
+                CheckpointStore.Checkpoint match = null;
+                if (checkpoints.get(i) != null) {
+                    for (CheckpointStore.Checkpoint checkpoint : checkpoints.get(i)) {
+                        if (checkpoint.barTime() == barTime) match = checkpoint;
+                    }
+                }
+                valid = match != null && match.tailHash() == tailHash(series, i, bar);
+                if (valid) importStates[i] = match.state();
+            }
+            if (valid) return bar;
+        }
+        return -1;
+    }
+    
+    /** Keeps the state after a closed bar every {@link CheckpointStore#INTERVAL} bars */
+    private void recordCheckpoint(Series series, int index, int totalBars, boolean newBar) {
+        boolean closed = index < totalBars - 1;
+        if (!closed && !newBar) return;
+        int bar = closed ? index : index - 1;
+        if (bar < 0 || (bar + 1) % CheckpointStore.INTERVAL != 0) return;
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (checkpointKeys[i] == null) continue;
+            if (closed) engine.exportState(i, lineState);
+            else engine.exportCommittedState(i, lineState);
+            addCheckpoint(series, i, bar, lineState);
+        }
+    }
+    
+    private void addCheckpoint(Series series, int line, int bar, double[] state) {
+        if (checkpointKeys[line] == null || !fullHistory) return;
+        var checkpoint = new CheckpointStore.Checkpoint(series.startTime(bar), tailHash(series, line, bar), state.clone());
+        if (checkpoints.get(line) == null) checkpoints.set(line, new java.util.ArrayList<>());
+        CheckpointStore.add(checkpoints.get(line), checkpoint);
+        checkpointsDirty = true;
+    }
+    
+    /**
+     * Drops the checkpoints at or after {@code index} once the series jumped back to it:
+     * their bars may come back changed.
+     */
+    private void truncateCheckpoints(Series series, int index) {
+        long time = series.startTime(index);
+        for (var list : checkpoints) {
+            if (list == null) continue;
+            while (!list.isEmpty() && list.get(list.size() - 1).barTime() >= time) list.remove(list.size() - 1);
+        }
+    }
+    
+    /** Hands the checkpoint files to the background saver; the lists are copied, the states never change */
+    private void saveCheckpoints() {
+        if (!checkpointsDirty) return;
+        checkpointsDirty = false;
+        var keys = new java.util.ArrayList<CheckpointStore.Key>();
+        var lists = new java.util.ArrayList<java.util.List<CheckpointStore.Checkpoint>>();
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (checkpointKeys[i] == null || checkpoints.get(i) == null) continue;
+            keys.add(checkpointKeys[i]);
+            lists.add(java.util.List.copyOf(checkpoints.get(i)));
+        }
+        CheckpointStore.submit(() -> {
+            long started = metrics.begin();
+            for (int k = 0; k < keys.size(); k++) {
+                try {
+                    CheckpointStore.save(keys.get(k), lists.get(k));
+                } catch (java.io.IOException e) {
+                    // Checkpoints only speed up rewinds and restarts; the study works without them
+                }
+            }
+            metrics.end(StudyMetrics.Path.CHECKPOINT_SAVE, started, 0);
+        });
+    }
+    
+    /** Hash of the bars a checkpoint of {@code line} after {@code bar} is validated against */
+    private long tailHash(Series series, int line, int bar) {
+        long hash = 0;
+        int from = Math.max(0, bar - CheckpointStore.tailLength(engineSettings.rsiPeriods[line]) + 1);
+        for (int i = from; i <= bar; i++) hash = mixBar(hash, series, i);
+        return hash;
+    }
+    
+    private static long mixBar(long hash, Series series, int index) {
+        return CheckpointStore.mix(hash, series.startTime(index), series.open(index), 
+            series.high(index), series.low(index), series.close(index));
+    }
+    
+    /** Index of the bar starting at {@code time} within {@code [0, last]}, or -1 */
+    private static int indexOfTime(Series series, long time, int last) {
+        int lo = 0, hi = last;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long t = series.startTime(mid);
+            if (t < time) lo = mid + 1;
+            else if (t > time) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+    
+    // ═══════════════════════════════════════════════════════════════════════════
+    // SHARED CACHE
+    // ═══════════════════════════════════════════════════════════════════════════
+    
+    /** Serves closed bars from the shared columns; false when the engine must run */
+    private boolean followSharedCache(Series series, int index, SettingsCache.SettingsSnapshot settings) {
+        if (!hasCacheEntries) return false;
+        // The live bar is never served: after a rewind the columns hold its closed value
+        boolean live = index == series.size() - 1;
+        if (followIndex != index) {
+            followIndex = -1;
+            int last = engine.lastIndex();
+            if (last == index || last == index - 1 || live || !cacheCovers(index)) return false;
+            followStart = index;
+        } else if (live || !cacheCovers(index)) {
+            // Reached the end of the shared columns: continue the recurrence locally
+            followIndex = -1;
+            resumeAfterFollow(series, index);
+            return false;
+        }
+        
+        for (int i = 0; i < NUM_RSI; i++) {
+            SharedRSICache.Entry entry = cacheEntries[i];
+            if (entry != null) writeRsi(series, index, i, entry.value(index));
+            else if (!settings.showFlags[i]) writeRsi(series, index, i, Double.NaN);
+        }
+        followIndex = index + 1;
+        return true;
+    }
+    
+    /**
+     * Cold-start counterpart of {@link #followSharedCache}: copies the closed bars the
+     * shared columns hold from {@code first} on, a chunk of each column at a time. The
+     * per-bar pass then continues following at the end of the copied range, or resumes
+     * the recurrence from the columns' state there.
+     */
+    private void copySharedHistory(Series series, SettingsCache.SettingsSnapshot settings, int first, int end) {
+        long started = metrics.begin();
+        int to = end;
+        for (SharedRSICache.Entry entry : cacheEntries) {
+            if (entry != null) to = Math.min(to, entry.end());
+        }
+        if (copyBuffer == null) copyBuffer = new double[REWIND_INTERVAL * 16];
+        for (int i = 0; i < NUM_RSI; i++) {
+            SharedRSICache.Entry entry = cacheEntries[i];
+            if (entry == null) {
+                if (settings.showFlags[i]) continue;
+                for (int j = first; j < to; j++) writeRsi(series, j, i, Double.NaN);
+                continue;
+            }
+            for (int start = first; start < to; start += copyBuffer.length) {
+                int count = Math.min(copyBuffer.length, to - start);
+                entry.copyRange(start, count, copyBuffer);
+                for (int k = 0; k < count; k++) writeRsi(series, start + k, i, copyBuffer[k]);
+            }
+        }
+        for (TimeframeGroup group : timeframeGroups) {
+            for (int j = first; j < to; j++) group.calculate(series, j, first, false);
+        }
+        followStart = first;
+        followIndex = to;
+        calculationState.markCalculated(to - 1, series.size(), priceKey(series, to - 1, settings));
+        metrics.end(StudyMetrics.Path.HISTORY, started, to - first);
+    }
+    
+    private boolean cacheCovers(int index) {
+        for (SharedRSICache.Entry entry : cacheEntries) {
+            if (entry != null && !entry.covers(index)) return false;
+        }
+        return true;
+    }
+    
+    private void resumeAfterFollow(Series series, int index) {
+        boolean imported = true;
+        for (int i = 0; i < NUM_RSI; i++) {
+            SharedRSICache.Entry entry = cacheEntries[i];
+            importStates[i] = null;
+            if (entry == null) continue;
+            imported &= entry.copyState(index, cacheStates[i]);
+            importStates[i] = cacheStates[i];
+        }
+        if (imported) {
+            loadPrices(series, Math.max(0, index - 1 - engine.maxPeriod()), index - 1);
+            engine.importState(prices.rows(), prices.mask(), index - 1, importStates);
+        } else if (!resumeFromSnapshot(series, index)) {
+            // Columns ended at different bars (or after a rewind): replay the followed range once
+            replay(series, followStart, index);
+        }
+    }
+    
+    /** Extends the shared columns with the newest closed bar this instance computed */
+    private void publishToSharedCache(int index, int totalBars, boolean newBar) {
+        if (!hasCacheEntries) return;
+        boolean closed = index < totalBars - 1;
+        if (!closed && !newBar) return;
+        int bar = closed ? index : index - 1;
+        for (int i = 0; i < NUM_RSI; i++) {
+            SharedRSICache.Entry entry = cacheEntries[i];
+            if (entry == null || (entry.end() >= 0 && entry.end() != bar)) continue;
+            if (closed) engine.exportState(i, lineState);
+            else engine.exportCommittedState(i, lineState);
+            entry.append(bar, closed ? engine.rsi(i) : engine.committedRsi(i), lineState);
+        }
+    }
+    
+    /** Acquires the columns of the chart lines seeded at {@link #seedTime} */
+    private void acquireCacheEntries(SettingsCache.SettingsSnapshot settings, Series series) {
+        releaseCacheEntries();
+        String symbol = series.symbol();
+        String barSize = series.barSize();
+        if (symbol == null || barSize == null) return;
+        
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (!settings.showFlags[i] || settings.timeframes[i] != 0 || settings.rsiPeriods[i] < 2.0) continue;
+            cacheEntries[i] = SharedRSICache.acquire(new SharedRSICache.Key(symbol, 
+                barSize, firstBarTime, seedTime, settings.rsiMethod, settings.rsiPeriods[i], 
+                settings.prices[i], settings.floatCache));
+            hasCacheEntries = true;
+        }
+    }
+    
+    /** Lock waits on the shared columns currently held (see {@link StudyMetrics}) */
+    private long cacheLockWaitNanos() {
+        long total = 0;
+        for (SharedRSICache.Entry entry : cacheEntries) {
+            if (entry != null) total += entry.lockWaitNanos();
+        }
+        return total;
+    }
+    
+    private void releaseCacheEntries() {
+        for (int i = 0; i < NUM_RSI; i++) {
+            SharedRSICache.release(cacheEntries[i]);
+            cacheEntries[i] = null;
+        }
+        hasCacheEntries = false;
+        followIndex = -1;
+    }
+    
+    private void configureEngines(SettingsCache.SettingsSnapshot settings, Series series) {
+        boolean[] chartLines = new boolean[NUM_RSI];
+        for (int i = 0; i < NUM_RSI; i++) chartLines[i] = settings.showFlags[i] && settings.timeframes[i] == 0;
+        prices.configure(settings.prices, chartLines);
+        engine.configure(settings.rsiPeriods, chartLines, settings.rsiMethod, prices.lineRows());
+        rewindRing.configure(chartLines);
+        configureRanks(settings, chartLines);
+        warmupBars = engine.warmupBars(settings.warmupTolerance);
+        sizePriceRing(engine.maxPeriod());
+        timeframeGroups = createTimeframeGroups(settings, series.session());
+        firstBarTime = series.startTime(0);
+        seedTime = Long.MIN_VALUE;
+        engineSettings = settings;
+        releaseCacheEntries();
+        configureCheckpoints(settings, series);
+        signals.configure(settings.showFlags, settings.overbought, settings.oversold, settings.midline,
+            settings.signalCrosses, settings.signalMidline, settings.signalAlignment);
+        listener.retract(-1);
+        metrics.configure(chartName(series), settings);
+    }
+    
+    /**
+     * Drops every state derived from an older seed bar once the window restarts at
+     * {@code first}, so the whole window is computed again from one seed, and moves
+     * to the shared columns of the new seed.
+     */
+    private void syncSeed(Series series, int first) {
+        int bar = Math.max(0, first - warmupBars);
+        long time = series.startTime(bar);
+        if (time == seedTime) return;
+        seedTime = time;
+        seedBar = bar;
+        engine.reset();
+        rewindRing.clear();
+        for (TimeframeGroup group : timeframeGroups) group.reset();
+        signals.reset();
+        listener.retract(-1);
+        fullHistory = bar == 0;
+        acquireCacheEntries(engineSettings, series);
+    }
+    
+    private static TimeframeGroup[] createTimeframeGroups(SettingsCache.SettingsSnapshot settings, 
+                                                          BarAggregator.Session session) {
+        java.util.List<TimeframeGroup> groups = new java.util.ArrayList<>();
+        for (int i = 0; i < NUM_RSI; i++) {
+            long tf = settings.timeframes[i];
+            if (!settings.showFlags[i] || tf == 0) continue;
+            boolean known = false;
+            for (TimeframeGroup group : groups) known |= group.tfMillis == tf;
+            if (!known) groups.add(new TimeframeGroup(tf, settings, session));
+        }
+        return groups.toArray(new TimeframeGroup[0]);
+    }
+    
+    
+    /** Derives the applied prices of bars {@code [from, to]} into the ring; at most one ring length at a time */
+    private void loadPrices(Series series, int from, int to) {
+        // Reuse the loaded range when it overlaps; the last loaded bar may have ticked
+        int start = (from >= pricesFrom && from <= pricesTo) ? Math.min(pricesTo, to) : from;
+        for (int i = start; i <= to; i++) prices.load(series, i);
+        if (start == from) pricesFrom = from;
+        pricesTo = Math.max(to, start == from ? to : pricesTo);
+        pricesFrom = Math.max(pricesFrom, pricesTo - prices.mask());
+    }
+    
+    /** Recomputes {@code [from, to)} through the close ring in chunks it can hold */
+    private void replay(Series series, int from, int to) {
+        long started = metrics.begin();
+        int window = engine.maxPeriod() + 1;
+        int chunk = prices.mask() + 1 - window;
+        for (int start = from; start < to; start += chunk) {
+            int end = Math.min(to, start + chunk);
+            loadPrices(series, Math.max(0, start - window), end - 1);
+            engine.compute(prices.rows(), prices.mask(), start, end, null, 0);
+        }
+        metrics.end(StudyMetrics.Path.REPLAY, started, to - from);
+    }
+    
+    private void sizePriceRing(int maxPeriod) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_PRICE_RING, 4 * (maxPeriod + 2)) * 2 - 1);
+        prices.useRing(capacity);
+        pricesFrom = 0;
+        pricesTo = -1;
+    }
+    
+    /** Tick key of bar {@code index}: its close, or its whole OHLC when a line reads another price */
+    private static long priceKey(Series series, int index, SettingsCache.SettingsSnapshot settings) {
+        if (settings.closeOnly) return CalculationState.priceKey(series.close(index));
+        return CalculationState.priceKey(series.open(index), series.high(index), 
+            series.low(index), series.close(index));
+    }
+    
+    private static String chartName(Series series) {
+        String symbol = series.symbol();
+        String barSize = series.barSize();
+        return ((symbol != null) ? symbol : "?") + " " + ((barSize != null) ? barSize : "?");
+    }
+}
@@ -0,0 +1,388 @@
+package com.biotak;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Headless multi-symbol RSI scanner
+ * اسکنر RSI برای چندین نماد بدون نیاز به چارت
+ *
+ * Computes the study's five RSI lines for every OHLC file given (one symbol
+ * per file, named after the file) with the same {@link RSIEngine} and
+ * {@link BarAggregator} the chart uses, then ranks symbols by how many lines
+ * agree on overbought or oversold. Each file is read through a memory map by
+ * {@link OHLCFile} and processed on its own virtual thread; chart-timeframe
+ * lines share one fused pass, each higher timeframe one more.
+ *
+ * <pre>
+ * java -cp mtf-rsi.jar com.biotak.RSIScanner [options] &lt;file or directory&gt;...
+ *   --method EMA|SMA|SMMA|WMA      smoothing (default EMA)
+ *   --periods 5,15,30,60,240       the five periods
+ *   --tf Chart,Chart,M5,H1,H4      timeframe per line (Chart = the file's own bars)
+ *   --zone America/New_York        time zone whose midnight starts a day (default UTC)
+ *   --show 1,1,1,1,1               lines to compute
+ *   --price Close|Open|High|Low|Median|Typical|Weighted
+ *                                  applied price of every line (default Close)
+ *   --lookback 1000                bars in the window, 0 = all (default as the study)
+ *   --ob 80 --os 20                overbought / oversold levels
+ *   --top N                        only the N best ranked rows
+ *   --out results.csv              write CSV (a text table on stdout otherwise)
+ *   --convert DIR                  also write each input in the binary format to DIR
+ * </pre>
+ *
+ * Directories are scanned (not recursively) for {@code .csv} and {@code .ohlc} files.
+ * Like the chart with its default warm-up, chart-timeframe lines are seeded at the
+ * first bar of the window and higher timeframes {@code period + 2} aggregated bars
+ * before it, so the last values match the study on the same bars and settings.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+public final class RSIScanner {
+
+    private static final int NUM_RSI = SettingsCache.NUM_RSI;
+    // Mapped files in flight; bounds address space and heap, not parallelism
+    private static final int MAX_OPEN_FILES = Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+
+    private RSIEngine.Method method = RSIEngine.Method.EMA;
+    private final double[] periods = SettingsCache.DEFAULT_PERIODS.clone();
+    private final long[] timeframes = new long[NUM_RSI];
+    private BarAggregator.Session session = BarAggregator.Session.UTC;
+    private final boolean[] show = {true, true, true, true, true};
+    private AppliedPrice price = AppliedPrice.CLOSE;
+    private int lookback = SettingsCache.DEFAULT_MAX_LOOKBACK;
+    private double overbought = 80.0;
+    private double oversold = 20.0;
+    private int top = Integer.MAX_VALUE;
+    private Path out = null;
+    private Path convertDir = null;
+
+    /** One scanned symbol: last RSI per line (NaN when hidden or not enough bars) */
+    record Result(String symbol, int bars, double[] rsi, int overboughtCount, int oversoldCount, String error) {
+
+        int aligned() { return Math.max(overboughtCount, oversoldCount); }
+
+        String signal() {
+            if (error != null) return "ERROR";
+            if (overboughtCount > oversoldCount) return "OVERBOUGHT";
+            if (oversoldCount > overboughtCount) return "OVERSOLD";
+            return "-";
+        }
+
+        /** Mean distance of the shown lines from the midline */
+        double strength() {
+            double sum = 0;
+            int n = 0;
+            for (double v : rsi) {
+                if (Double.isNaN(v)) continue;
+                sum += Math.abs(v - 50.0);
+                n++;
+            }
+            return n == 0 ? 0.0 : sum / n;
+        }
+    }
+
+    private RSIScanner() {}
+
+    public static void main(String[] args) throws Exception {
+        var scanner = new RSIScanner();
+        List<Path> files;
+        try {
+            files = scanner.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("RSIScanner: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (files.isEmpty()) {
+            System.err.println("RSIScanner: no input files");
+            System.exit(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = scanner.scan(files);
+        if (scanner.out != null) {
+            try (var stream = new PrintStream(Files.newOutputStream(scanner.out), false, "UTF-8")) {
+                scanner.writeCsv(results, stream);
+            }
+        } else {
+            scanner.writeTable(results, System.out);
+        }
+        System.err.printf(Locale.ROOT, "Scanned %d files in %.2f s%n", files.size(), (System.nanoTime() - start) / 1e9);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // SCAN
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** Scans every file on its own virtual thread; results are ranked best first */
+    List<Result> scan(List<Path> files) throws InterruptedException {
+        var permits = new Semaphore(MAX_OPEN_FILES);
+        var futures = new ArrayList<Future<Result>>(files.size());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return scanFile(file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+        var results = new ArrayList<Result>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                results.add(failed(symbolOf(files.get(i)), e.getCause()));
+            }
+        }
+        results.sort(Comparator.comparing((Result r) -> r.error != null)
+            .thenComparing(Comparator.comparingInt(Result::aligned).reversed())
+            .thenComparing(Comparator.comparingDouble(Result::strength).reversed())
+            .thenComparing(Result::symbol));
+        return results.size() > top ? new ArrayList<>(results.subList(0, top)) : results;
+    }
+
+    Result scanFile(Path file) {
+        String symbol = symbolOf(file);
+        try {
+            OHLCFile bars = OHLCFile.read(file);
+            if (convertDir != null) bars.write(convertDir.resolve(symbol + ".ohlc"));
+            double[] rsi = compute(bars);
+            int ob = 0, os = 0;
+            for (double v : rsi) {
+                if (v >= overbought) ob++;
+                else if (v <= oversold) os++;
+            }
+            return new Result(symbol, bars.size, rsi, ob, os, null);
+        } catch (IOException | RuntimeException e) {
+            return failed(symbol, e);
+        }
+    }
+
+    /** Last value of every line; lines on the same timeframe share one engine pass */
+    double[] compute(OHLCFile bars) {
+        double[] rsi = new double[NUM_RSI];
+        Arrays.fill(rsi, Double.NaN);
+        if (bars.size == 0) return rsi;
+        int windowStart = (lookback > 0) ? Math.max(0, bars.size - lookback) : 0;
+        AppliedPrice[] linePrices = new AppliedPrice[NUM_RSI];
+        Arrays.fill(linePrices, price);
+        boolean[] done = new boolean[NUM_RSI];
+        for (int i = 0; i < NUM_RSI; i++) {
+            if (!show[i] || done[i]) continue;
+            long tf = timeframes[i];
+            boolean[] lines = new boolean[NUM_RSI];
+            for (int j = i; j < NUM_RSI; j++) {
+                lines[j] = show[j] && timeframes[j] == tf;
+                done[j] |= lines[j];
+            }
+            var prices = new PriceColumns(NUM_RSI);
+            prices.configure(linePrices, lines);
+            var engine = new RSIEngine(NUM_RSI);
+            engine.configure(periods, lines, method, prices.lineRows());
+
+            if (tf == 0) {
+                // Seeded at the window start; the bars before it fill the sliding windows
+                for (int k = Math.max(0, windowStart - engine.maxPeriod() - 1); k < bars.size; k++) {
+                    prices.store(k, bars.open[k], bars.high[k], bars.low[k], bars.close[k]);
+                }
+                engine.compute(prices.rows(), -1, windowStart, bars.size, null, 0);
+            } else {
+                var aggregator = new BarAggregator(tf, session);
+                for (int k = 0; k < bars.size; k++) {
+                    aggregator.update(k, bars.times[k], bars.open[k], bars.high[k], bars.low[k], bars.close[k]);
+                }
+                // The chart's groups start from scratch this many aggregated bars before the window
+                int from = Math.max(0, aggregator.indexOfBase(windowStart) - engine.maxPeriod() - 1);
+                for (int k = from; k < aggregator.size(); k++) {
+                    prices.store(k - from, aggregator.opens()[k], aggregator.highs()[k],
+                        aggregator.lows()[k], aggregator.closes()[k]);
+                }
+                engine.compute(prices.rows(), -1, 0, aggregator.size() - from, null, 0);
+            }
+            for (int j = 0; j < NUM_RSI; j++) {
+                if (lines[j]) rsi[j] = engine.rsi(j);
+            }
+        }
+        return rsi;
+    }
+
+    private static Result failed(String symbol, Throwable error) {
+        double[] rsi = new double[NUM_RSI];
+        Arrays.fill(rsi, Double.NaN);
+        String message = error.getMessage() != null ? error.getMessage() : error.toString();
+        return new Result(symbol, 0, rsi, 0, 0, message);
+    }
+
+    private static String symbolOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // OUTPUT
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    void writeTable(List<Result> results, PrintStream stream) {
+        var header = new StringBuilder(String.format(Locale.ROOT, "%4s  %-16s %8s", "Rank", "Symbol", "Bars"));
+        for (int i = 0; i < NUM_RSI; i++) header.append(String.format(Locale.ROOT, " %8s", label(i)));
+        header.append(String.format(Locale.ROOT, "  %-10s %s", "Signal", "Aligned"));
+        stream.println(header);
+        int rank = 0;
+        for (Result r : results) {
+            var row = new StringBuilder(String.format(Locale.ROOT, "%4d  %-16s %8d", ++rank, r.symbol, r.bars));
+            for (double v : r.rsi) row.append(Double.isNaN(v) ? String.format(Locale.ROOT, " %8s", "-")
+                : String.format(Locale.ROOT, " %8.2f", v));
+            row.append(String.format(Locale.ROOT, "  %-10s %d/%d", r.signal(), r.aligned(), shownLines()));
+            if (r.error != null) row.append("  ").append(r.error);
+            stream.println(row);
+        }
+        stream.flush();
+    }
+
+    void writeCsv(List<Result> results, PrintStream stream) {
+        var header = new StringBuilder("rank,symbol,bars");
+        for (int i = 0; i < NUM_RSI; i++) header.append(',').append(label(i).replace(' ', '_'));
+        stream.println(header.append(",signal,aligned,error"));
+        int rank = 0;
+        for (Result r : results) {
+            var row = new StringBuilder().append(++rank).append(',').append(r.symbol).append(',').append(r.bars);
+            for (double v : r.rsi) row.append(',').append(Double.isNaN(v) ? "" : String.format(Locale.ROOT, "%.4f", v));
+            row.append(',').append(r.signal()).append(',').append(r.aligned()).append(',');
+            if (r.error != null) row.append('"').append(r.error.replace('"', '\'')).append('"');
+            stream.println(row);
+        }
+        stream.flush();
+    }
+
+    private String label(int line) {
+        String period = (periods[line] == Math.rint(periods[line])) ? String.valueOf((long) periods[line])
+            : String.valueOf(periods[line]);
+        String tf = SettingsCache.TF_CHART;
+        for (int k = 0; k < SettingsCache.TF_MILLIS.length; k++) {
+            if (SettingsCache.TF_MILLIS[k] == timeframes[line]) tf = SettingsCache.TF_NAMES[k];
+        }
+        return tf.equals(SettingsCache.TF_CHART) ? "RSI " + period : "RSI " + period + "@" + tf;
+    }
+
+    private int shownLines() {
+        int n = 0;
+        for (boolean s : show) if (s) n++;
+        return n;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // ARGUMENTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    private List<Path> parse(String[] args) throws IOException {
+        var files = new ArrayList<Path>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                addInput(Path.of(arg), files);
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException(arg + " needs a value");
+            String value = args[++i];
+            switch (arg) {
+                case "--method":
+                    try {
+                        method = RSIEngine.Method.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("unknown method " + value + " (EMA, SMA, SMMA or WMA)");
+                    }
+                    break;
+                case "--periods": {
+                    String[] parts = split(value, arg);
+                    for (int k = 0; k < NUM_RSI; k++) periods[k] = Double.parseDouble(parts[k]);
+                    break;
+                }
+                case "--tf": {
+                    String[] parts = split(value, arg);
+                    for (int k = 0; k < NUM_RSI; k++) {
+                        timeframes[k] = SettingsCache.timeframeMillis(parts[k]);
+                        if (timeframes[k] == 0 && !parts[k].equals(SettingsCache.TF_CHART)) {
+                            throw new IllegalArgumentException("unknown timeframe " + parts[k]);
+                        }
+                    }
+                    break;
+                }
+                case "--zone":
+                    try {
+                        session = BarAggregator.Session.of(ZoneId.of(value));
+                    } catch (DateTimeException e) {
+                        throw new IllegalArgumentException("unknown time zone " + value);
+                    }
+                    break;
+                case "--show": {
+                    String[] parts = split(value, arg);
+                    for (int k = 0; k < NUM_RSI; k++) show[k] = parts[k].equals("1") || parts[k].equalsIgnoreCase("true");
+                    break;
+                }
+                case "--price":
+                    price = AppliedPrice.of(value);
+                    if (!price.name().equalsIgnoreCase(value) && !price.label().equalsIgnoreCase(value)) {
+                        throw new IllegalArgumentException("unknown price " + value
+                            + " (Close, Open, High, Low, Median, Typical or Weighted)");
+                    }
+                    break;
+                case "--lookback":
+                    lookback = Integer.parseInt(value);
+                    if (lookback < 0) throw new IllegalArgumentException("--lookback must be 0 (all bars) or more");
+                    break;
+                case "--ob": overbought = Double.parseDouble(value); break;
+                case "--os": oversold = Double.parseDouble(value); break;
+                case "--top": top = Integer.parseInt(value); break;
+                case "--out": out = Path.of(value); break;
+                case "--convert":
+                    convertDir = Path.of(value);
+                    Files.createDirectories(convertDir);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + arg);
+            }
+        }
+        return files;
+    }
+
+    private static String[] split(String value, String option) {
+        String[] parts = value.split(",");
+        if (parts.length != NUM_RSI) throw new IllegalArgumentException(option + " needs " + NUM_RSI + " comma-separated values");
+        for (int k = 0; k < parts.length; k++) parts[k] = parts[k].trim();
+        return parts;
+    }
+
+    private static void addInput(Path path, List<Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        try (Stream<Path> entries = Files.list(path)) {
+            entries.filter(p -> {
+                String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+                return Files.isRegularFile(p) && (name.endsWith(".csv") || name.endsWith(".ohlc"));
+            }).sorted().forEach(files::add);
+        }
+    }
+}
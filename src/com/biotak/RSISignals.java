@@ -0,0 +1,198 @@
+package com.biotak;
+
+import java.util.Arrays;
+
+/**
+ * Level-cross and alignment events of the RSI lines
+ * تشخیص تدریجی عبور از سطوح و هم‌جهتی خطوط RSI
+ *
+ * Fed one closed bar at a time, in index order. Each line keeps which side of
+ * the oversold, middle and overbought levels its last closed value was on (a
+ * value equal to a level counts as below it); a bar whose value changes side
+ * reports the crossing. Alignment states (every enabled line overbought,
+ * oversold, above or below the midline) are re-derived from those sides and
+ * reported when entered. A bar costs a few comparisons per line and nothing
+ * is allocated.
+ *
+ * Lines are only updated on bars the caller marks as closing them, so a
+ * higher-timeframe line moves once per aggregated bar and a forming value
+ * that crosses and crosses back never reports. Events come back as one
+ * {@code long} of {@link #lineEvent} and {@link #alignedEvent} bits.
+ *
+ * Not thread-safe.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class RSISignals {
+
+    // Line events, per line
+    static final int OVERBOUGHT_ENTER = 0;
+    static final int OVERBOUGHT_EXIT = 1;
+    static final int OVERSOLD_ENTER = 2;
+    static final int OVERSOLD_EXIT = 3;
+    static final int MIDLINE_UP = 4;
+    static final int MIDLINE_DOWN = 5;
+    static final int LINE_EVENTS = 6;
+
+    // Alignment events, once for all lines
+    static final int ALIGNED_OVERBOUGHT = 0;
+    static final int ALIGNED_OVERSOLD = 1;
+    static final int ALIGNED_BULLISH = 2;
+    static final int ALIGNED_BEARISH = 3;
+    static final int ALIGNED_EVENTS = 4;
+
+    /** Lines are limited by the event bits below the alignment bits */
+    static final int MAX_LINES = 8;
+    /** Bit of the first alignment event; line {@code l}'s events start at bit {@code l * LINE_EVENTS} */
+    static final int ALIGNED_SHIFT = MAX_LINES * LINE_EVENTS;
+
+    // Side of each level a value is on
+    private static final int ABOVE_OVERSOLD = 1;
+    private static final int ABOVE_MIDLINE = 2;
+    private static final int ABOVE_OVERBOUGHT = 4;
+    private static final int UNKNOWN = -1;
+
+    private final int numLines;
+    private final boolean[] lines;
+    private final int[] sides;
+    private double overbought = 80.0;
+    private double oversold = 20.0;
+    private double midline = 50.0;
+    private long enabledEvents = 0L;
+    private int aligned = 0;
+    private int lastIndex = -1;
+
+    RSISignals(int numLines) {
+        if (numLines > MAX_LINES) throw new IllegalArgumentException("numLines > " + MAX_LINES);
+        this.numLines = numLines;
+        this.lines = new boolean[numLines];
+        this.sides = new int[numLines];
+        reset();
+    }
+
+    static long lineEvent(int line, int kind) { return 1L << (line * LINE_EVENTS + kind); }
+
+    static long alignedEvent(int kind) { return 1L << (ALIGNED_SHIFT + kind); }
+
+    /**
+     * Sets the tracked lines, the levels and which events are reported, and forgets
+     * all state. Alignment is tracked even when its events are off.
+     */
+    void configure(boolean[] lines, double overbought, double oversold, double midline,
+                   boolean crosses, boolean midlineCrosses, boolean alignment) {
+        System.arraycopy(lines, 0, this.lines, 0, numLines);
+        this.overbought = overbought;
+        this.oversold = oversold;
+        this.midline = midline;
+        long mask = 0L;
+        for (int l = 0; l < numLines; l++) {
+            if (!lines[l]) continue;
+            if (crosses) {
+                mask |= lineEvent(l, OVERBOUGHT_ENTER) | lineEvent(l, OVERBOUGHT_EXIT)
+                    | lineEvent(l, OVERSOLD_ENTER) | lineEvent(l, OVERSOLD_EXIT);
+            }
+            if (midlineCrosses) mask |= lineEvent(l, MIDLINE_UP) | lineEvent(l, MIDLINE_DOWN);
+        }
+        if (alignment) {
+            for (int k = 0; k < ALIGNED_EVENTS; k++) mask |= alignedEvent(k);
+        }
+        enabledEvents = mask;
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(sides, UNKNOWN);
+        aligned = 0;
+        lastIndex = -1;
+    }
+
+    /** Last bar fed, or -1 */
+    int lastIndex() { return lastIndex; }
+
+    double overbought() { return overbought; }
+
+    double oversold() { return oversold; }
+
+    double midline() { return midline; }
+
+    /**
+     * Current alignment: 2 when every line is overbought, 1 when every line is above
+     * the midline, -1 and -2 for the opposite, 0 otherwise
+     */
+    int alignment() {
+        if ((aligned & (1 << ALIGNED_OVERBOUGHT)) != 0) return 2;
+        if ((aligned & (1 << ALIGNED_OVERSOLD)) != 0) return -2;
+        if ((aligned & (1 << ALIGNED_BULLISH)) != 0) return 1;
+        if ((aligned & (1 << ALIGNED_BEARISH)) != 0) return -1;
+        return 0;
+    }
+
+    /** Takes bar {@code index}'s values as the current sides without reporting; for a cold start or a rewind */
+    void prime(int index, double[] values) {
+        for (int l = 0; l < numLines; l++) sides[l] = lines[l] ? side(values[l]) : UNKNOWN;
+        aligned = alignedStates();
+        lastIndex = index;
+    }
+
+    /**
+     * Feeds closed bar {@code index} (the bar after {@link #lastIndex}) and returns the
+     * enabled events it triggers. Only lines whose bit is set in {@code closingLines}
+     * are updated; a NaN value forgets the line's side without reporting.
+     */
+    long update(int index, double[] values, int closingLines) {
+        long events = 0L;
+        for (int l = 0; l < numLines; l++) {
+            if (!lines[l] || (closingLines & (1 << l)) == 0) continue;
+            int side = side(values[l]);
+            int previous = sides[l];
+            sides[l] = side;
+            if (side == UNKNOWN || previous == UNKNOWN || side == previous) continue;
+            int changed = side ^ previous;
+            if ((changed & ABOVE_OVERBOUGHT) != 0) {
+                events |= lineEvent(l, (side & ABOVE_OVERBOUGHT) != 0 ? OVERBOUGHT_ENTER : OVERBOUGHT_EXIT);
+            }
+            if ((changed & ABOVE_OVERSOLD) != 0) {
+                events |= lineEvent(l, (side & ABOVE_OVERSOLD) != 0 ? OVERSOLD_EXIT : OVERSOLD_ENTER);
+            }
+            if ((changed & ABOVE_MIDLINE) != 0) {
+                events |= lineEvent(l, (side & ABOVE_MIDLINE) != 0 ? MIDLINE_UP : MIDLINE_DOWN);
+            }
+        }
+        int states = alignedStates();
+        events |= (long) (states & ~aligned) << ALIGNED_SHIFT;
+        aligned = states;
+        lastIndex = index;
+        return events & enabledEvents;
+    }
+
+    private int side(double value) {
+        if (Double.isNaN(value)) return UNKNOWN;
+        int side = 0;
+        if (value > oversold) side |= ABOVE_OVERSOLD;
+        if (value > midline) side |= ABOVE_MIDLINE;
+        if (value > overbought) side |= ABOVE_OVERBOUGHT;
+        return side;
+    }
+
+    /** Alignment bits of the current sides; none while a line's side is unknown */
+    private int alignedStates() {
+        int all = ABOVE_OVERSOLD | ABOVE_MIDLINE | ABOVE_OVERBOUGHT;
+        int none = 0;
+        boolean any = false;
+        for (int l = 0; l < numLines; l++) {
+            if (!lines[l]) continue;
+            if (sides[l] == UNKNOWN) return 0;
+            all &= sides[l];
+            none |= sides[l];
+            any = true;
+        }
+        if (!any) return 0;
+        int states = 0;
+        if ((all & ABOVE_OVERBOUGHT) != 0) states |= 1 << ALIGNED_OVERBOUGHT;
+        if ((none & ABOVE_OVERSOLD) == 0) states |= 1 << ALIGNED_OVERSOLD;
+        if ((all & ABOVE_MIDLINE) != 0) states |= 1 << ALIGNED_BULLISH;
+        if ((none & ABOVE_MIDLINE) == 0) states |= 1 << ALIGNED_BEARISH;
+        return states;
+    }
+}
@@ -0,0 +1,104 @@
+package com.biotak;
+
+import java.util.Arrays;
+
+/**
+ * Spaced smoothing-state snapshots for rewinds
+ * نگهداری وضعیت‌های میانی برای برگشت سریع در بازپخش
+ *
+ * Keeps the state of every line after one bar per block of {@code interval}
+ * bars, for the newest {@link #SLOTS} blocks. When bar replay or backtest
+ * stepping moves a chart back, the newest snapshot at or before the new last
+ * closed bar is restored and only the bars after it are recomputed. Each
+ * snapshot remembers its bar's time and close so the caller can check that
+ * the bar is still the same.
+ *
+ * Not thread-safe.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class RewindRing {
+
+    static final int SLOTS = 64;
+
+    private final int interval;
+    private final int stateSize = RSIEngine.lineStateSize();
+    private final int[] bars = new int[SLOTS];
+    private final long[] times = new long[SLOTS];
+    private final float[] closes = new float[SLOTS];
+    private final int[] lineMasks = new int[SLOTS];
+    private final double[][] states;
+    private int requiredMask = 0;
+
+    RewindRing(int numLines, int interval) {
+        this.interval = interval;
+        this.states = new double[SLOTS][numLines * stateSize];
+        clear();
+    }
+
+    /** Lines a snapshot must hold to be usable; drops all snapshots */
+    void configure(boolean[] lines) {
+        requiredMask = 0;
+        for (int l = 0; l < lines.length; l++) {
+            if (lines[l]) requiredMask |= 1 << l;
+        }
+        clear();
+    }
+
+    void clear() {
+        Arrays.fill(bars, -1);
+        Arrays.fill(lineMasks, 0);
+    }
+
+    /** True for the last bar of a block, where per-bar callers take their snapshot */
+    boolean isSnapshotBar(int bar) {
+        return (bar + 1) % interval == 0;
+    }
+
+    /** Stores {@code line}'s state after {@code bar}; replaces an older snapshot in the same block */
+    void put(int line, int bar, long time, float close, double[] state) {
+        int slot = (bar / interval) & (SLOTS - 1);
+        if (bars[slot] != bar) {
+            bars[slot] = bar;
+            times[slot] = time;
+            closes[slot] = close;
+            lineMasks[slot] = 0;
+        }
+        System.arraycopy(state, 0, states[slot], line * stateSize, stateSize);
+        lineMasks[slot] |= 1 << line;
+    }
+
+    /** Newest snapshot holding every configured line at a bar at or before {@code maxBar}, or -1 */
+    int find(int maxBar) {
+        if (requiredMask == 0 || maxBar < 0) return -1;
+        for (int block = maxBar / interval, n = 0; block >= 0 && n < SLOTS; block--, n++) {
+            int slot = block & (SLOTS - 1);
+            int bar = bars[slot];
+            if (bar < 0 || bar > maxBar || bar / interval != block) continue;
+            if ((lineMasks[slot] & requiredMask) == requiredMask) return slot;
+        }
+        return -1;
+    }
+
+    int bar(int slot) { return bars[slot]; }
+
+    long time(int slot) { return times[slot]; }
+
+    float close(int slot) { return closes[slot]; }
+
+    /** Copies {@code line}'s state from {@code slot} into {@code dst} */
+    void copyState(int slot, int line, double[] dst) {
+        System.arraycopy(states[slot], line * stateSize, dst, 0, stateSize);
+    }
+
+    /** Forgets snapshots after {@code bar}, e.g. once a bar they depend on has changed */
+    void truncate(int bar) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (bars[slot] > bar) {
+                bars[slot] = -1;
+                lineMasks[slot] = 0;
+            }
+        }
+    }
+}
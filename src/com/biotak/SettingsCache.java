@@ -0,0 +1,174 @@
+package com.biotak;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe settings snapshot cache
+ * کش تنظیمات با الگوی Immutable Snapshot
+ *
+ * Copies every option the calculation needs into an immutable
+ * {@link SettingsSnapshot}. The snapshot is stamped with a version: the study
+ * calls {@link #markChanged()} when MotiveWave reports a settings update, and
+ * {@link #updateIfNeeded} only rebuilds when the stamp or the settings object
+ * differs, so the per-call check is two reads and no settings lookups.
+ * Settings are read through {@link Source}, so this class has no MotiveWave
+ * dependency; the study adapts its {@code Settings}.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class SettingsCache {
+    
+    static final int NUM_RSI = 5;
+    static final String[] PERIOD_KEYS = {"period1", "period2", "period3", "period4", "period5"};
+    static final String[] SHOW_KEYS = {"show1", "show2", "show3", "show4", "show5"};
+    static final String[] TF_KEYS = {"tf1", "tf2", "tf3", "tf4", "tf5"};
+    static final String[] NORM_KEYS = {"norm1", "norm2", "norm3", "norm4", "norm5"};
+    static final String[] PRICE_KEYS = {"price1", "price2", "price3", "price4", "price5"};
+    static final double[] DEFAULT_PERIODS = {5.0, 15.0, 30.0, 60.0, 240.0};
+    static final int DEFAULT_MAX_LOOKBACK = 1000;
+    static final int DEFAULT_NORM_LOOKBACK = 500;
+    static final double DEFAULT_OVERBOUGHT = 80.0;
+    static final double DEFAULT_MIDLINE = 50.0;
+    static final double DEFAULT_OVERSOLD = 20.0;
+    
+    // Line timeframes: "Chart" keeps the period on the chart's own bars
+    static final String TF_CHART = "Chart";
+    static final String[] TF_NAMES = {TF_CHART, "M1", "M5", "M15", "M30", "H1", "H4", "D1"};
+    static final long[] TF_MILLIS = {0L, 60_000L, 300_000L, 900_000L, 1_800_000L, 
+        3_600_000L, 14_400_000L, 86_400_000L};
+    
+    /** Read access to the study settings */
+    interface Source {
+        int getInteger(String key, int def);
+        double getDouble(String key, double def);
+        boolean getBoolean(String key, boolean def);
+        String getString(String key, String def);
+        /** Value of the guide line stored under {@code key} */
+        double getGuide(String key, double def);
+        /** Smoothing method stored under {@code key}; EMA when unset */
+        RSIEngine.Method getMethod(String key);
+    }
+    
+    private volatile SettingsSnapshot snapshot = null;
+    private final AtomicInteger version = new AtomicInteger();
+    private final TimedLock updateLock = new TimedLock("settings");
+    private final AtomicInteger rebuilds = new AtomicInteger();
+    
+    static final class SettingsSnapshot {
+        final int maxLookback;
+        final boolean[] showFlags;
+        final double[] rsiPeriods;
+        final long[] timeframes;
+        final boolean[] normFlags;
+        final int normLookback;
+        final AppliedPrice[] prices;
+        final boolean closeOnly;
+        final RSIEngine.Method rsiMethod;
+        final boolean floatCache;
+        final double warmupTolerance;
+        final boolean checkpoints;
+        final boolean signalCrosses;
+        final boolean signalMidline;
+        final boolean signalAlignment;
+        final boolean signalValues;
+        /** Any signal option is on */
+        final boolean signals;
+        final double overbought;
+        final double midline;
+        final double oversold;
+        final int version;
+        final Source source;
+        
+        SettingsSnapshot(Source settings, int version) {
+            this.version = version;
+            this.source = settings;
+            this.maxLookback = settings.getInteger("maxLookback", DEFAULT_MAX_LOOKBACK);
+            this.rsiMethod = settings.getMethod("rsiMethod");
+            this.floatCache = settings.getBoolean("floatCache", false);
+            this.warmupTolerance = settings.getDouble("warmupTolerance", 0.0);
+            this.checkpoints = settings.getBoolean("checkpoints", false);
+            this.signalCrosses = settings.getBoolean("signalCrosses", false);
+            this.signalMidline = settings.getBoolean("signalMidline", false);
+            this.signalAlignment = settings.getBoolean("signalAlignment", false);
+            this.signalValues = settings.getBoolean("signalValues", false);
+            this.signals = signalCrosses || signalMidline || signalAlignment || signalValues;
+            // Signal levels follow the guide lines
+            this.overbought = settings.getGuide("upperGuide", DEFAULT_OVERBOUGHT);
+            this.midline = settings.getGuide("middleGuide", DEFAULT_MIDLINE);
+            this.oversold = settings.getGuide("lowerGuide", DEFAULT_OVERSOLD);
+            this.normLookback = Math.max(1, settings.getInteger("normLookback", DEFAULT_NORM_LOOKBACK));
+            this.showFlags = new boolean[NUM_RSI];
+            this.rsiPeriods = new double[NUM_RSI];
+            this.timeframes = new long[NUM_RSI];
+            this.normFlags = new boolean[NUM_RSI];
+            this.prices = new AppliedPrice[NUM_RSI];
+            
+            // One applied price for every line unless individual prices are enabled
+            AppliedPrice global = AppliedPrice.of(settings.getString("appliedPrice", AppliedPrice.CLOSE.label()));
+            boolean individual = settings.getBoolean("individualPrices", false);
+            boolean onlyClose = true;
+            for (int i = 0; i < NUM_RSI; i++) {
+                showFlags[i] = settings.getBoolean(SHOW_KEYS[i], true);
+                rsiPeriods[i] = settings.getDouble(PERIOD_KEYS[i], DEFAULT_PERIODS[i]);
+                timeframes[i] = timeframeMillis(settings.getString(TF_KEYS[i], TF_CHART));
+                normFlags[i] = settings.getBoolean(NORM_KEYS[i], false);
+                prices[i] = individual ? AppliedPrice.of(settings.getString(PRICE_KEYS[i], global.label())) : global;
+                onlyClose &= !showFlags[i] || prices[i] == AppliedPrice.CLOSE;
+            }
+            this.closeOnly = onlyClose;
+        }
+        
+        boolean isCurrent(Source settings, int version) {
+            return this.source == settings && this.version == version;
+        }
+    }
+    
+    /** Current snapshot for {@code settings}; rebuilt only after {@link #markChanged()} or a new source */
+    SettingsSnapshot updateIfNeeded(Source settings) {
+        if (settings == null) return null;
+        SettingsSnapshot current = snapshot;
+        if (current != null && current.isCurrent(settings, version.get())) return current;
+        updateLock.lock();
+        try {
+            // A change marked while building leaves an old stamp: the next call rebuilds
+            int v = version.get();
+            current = snapshot;
+            if (current != null && current.isCurrent(settings, v)) return current;
+            current = new SettingsSnapshot(settings, v);
+            snapshot = current;
+            rebuilds.incrementAndGet();
+            return current;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+    
+    /** Settings were edited: the next {@link #updateIfNeeded} re-reads them */
+    void markChanged() {
+        version.incrementAndGet();
+    }
+    
+    void invalidate() {
+        updateLock.lock();
+        try {
+            version.incrementAndGet();
+            snapshot = null;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+    
+    /** Snapshots built so far */
+    int rebuilds() { return rebuilds.get(); }
+    
+    /** Time callers waited for the rebuild lock */
+    long lockWaitNanos() { return updateLock.waitNanos(); }
+    
+    static long timeframeMillis(String name) {
+        for (int i = 0; i < TF_NAMES.length; i++) {
+            if (TF_NAMES[i].equals(name)) return TF_MILLIS[i];
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,299 @@
+package com.biotak;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of computed RSI columns
+ * کش مشترک RSI بین چارت‌ها
+ *
+ * Charts showing the same instrument, bar size, method, period and applied
+ * price, seeded at the same bar, share one
+ * {@link Entry}: a contiguous column of closed-bar RSI values plus the line's
+ * smoothing state after the last cached bar, so a follower can copy history
+ * and continue the recurrence without recomputing it. Entries are
+ * reference-counted. Every column growth is reserved against the byte budget
+ * (system property {@code biotak.rsi.cache.maxBytes}, default 128 MB) first, and
+ * a column stays counted until it is evicted, held or not. Unreferenced entries
+ * are evicted least-recently-used first to make room, and when only entries in
+ * use are left the column stops growing. Its charts then continue on their own
+ * engines past its end; columns in use are never trimmed. A cold start copies a
+ * column out in ranges ({@link Entry#copyRange}) rather than bar by bar.
+ * Float-column keys store their column as {@code float[]} at half the size.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class SharedRSICache {
+
+    private static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+    private static final ConcurrentHashMap<Key, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final AtomicLong CLOCK = new AtomicLong();
+    private static final AtomicLong TOTAL_BYTES = new AtomicLong();
+    private static volatile long maxBytes = Long.getLong("biotak.rsi.cache.maxBytes", DEFAULT_MAX_BYTES);
+
+    private SharedRSICache() {}
+
+    /**
+     * Identity of one cached column. {@code firstBarTime} pins bar indices to the
+     * same history: charts with a different amount of loaded data never share.
+     * {@code seedTime} is the start time of the bar the recurrence was seeded at,
+     * the window start less any warm-up: charts seeded at the same bar compute the
+     * same values whatever their lookback or tolerance, any other pair does not share.
+     */
+    record Key(String instrument, String barSize, long firstBarTime, long seedTime, RSIEngine.Method method,
+               double period, AppliedPrice price, boolean floatColumns) {}
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // ENTRY
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    static final class Entry {
+        final Key key;
+        private final TimedLock lock;
+        // Holders, or EVICTED once claimed for eviction (never held again)
+        private final AtomicInteger refCount = new AtomicInteger();
+        private volatile long lastAccess;
+        private long bytes;
+
+        // Values for bars [from, end); published by the volatile write of end.
+        // Exactly one of the two columns is used, depending on key.floatColumns.
+        private volatile double[] values = new double[0];
+        private volatile float[] floatValues = new float[0];
+        private final double[] state = new double[RSIEngine.lineStateSize()];
+        private int from = -1;
+        private volatile int end = -1;
+
+        private Entry(Key key) {
+            this.key = key;
+            this.lock = new TimedLock("shared cache " + key.instrument() + " " + key.barSize() + " "
+                + key.method() + " " + key.period() + " " + key.price());
+        }
+
+        /** First cached bar, or -1 while empty */
+        int from() { return (end < 0) ? -1 : from; }
+
+        /** One past the last cached bar, or -1 while empty */
+        int end() { return end; }
+
+        boolean covers(int index) {
+            int e = end;
+            return e >= 0 && index >= from && index < e;
+        }
+
+        /** Cached RSI at {@code index}; caller checks {@link #covers(int)} first */
+        double value(int index) {
+            int e = end;
+            if (index >= e) return Double.NaN;
+            return key.floatColumns ? floatValues[index - from] : values[index - from];
+        }
+
+        /** Copies the RSIs of bars {@code first .. first + count - 1} to {@code dst}; caller checks they are covered */
+        void copyRange(int first, int count, double[] dst) {
+            // Reading end first publishes the values before it
+            int available = Math.max(0, Math.min(count, end - first));
+            int offset = first - from;
+            if (key.floatColumns) {
+                float[] src = floatValues;
+                for (int k = 0; k < available; k++) dst[k] = src[offset + k];
+            } else {
+                System.arraycopy(values, offset, dst, 0, available);
+            }
+            Arrays.fill(dst, available, count, Double.NaN);
+        }
+
+        /** Copies the state after bar {@code end() - 1}; false if the entry moved on */
+        boolean copyState(int expectedEnd, double[] dst) {
+            lock.lock();
+            try {
+                if (end != expectedEnd) return false;
+                System.arraycopy(state, 0, dst, 0, state.length);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Time callers waited for this entry, all charts together */
+        long lockWaitNanos() { return lock.waitNanos(); }
+
+        /**
+         * Extends the column with closed bar {@code index}. Only the next contiguous
+         * bar is accepted; a bar someone else already published is ignored.
+         */
+        void append(int index, double value, double[] lineState) {
+            int e = end;
+            if (e >= 0 && index != e) return;
+            if (!reserveCapacity(index, index + 1)) return;
+            lock.lock();
+            try {
+                if (end >= 0 && index != end) return;
+                if (end < 0) from = index;
+                int offset = index - from;
+                if (offset >= capacity()) return;
+                if (key.floatColumns) floatValues[offset] = (float) value;
+                else values[offset] = value;
+                System.arraycopy(lineState, 0, state, 0, state.length);
+                end = index + 1;
+            } finally {
+                lock.unlock();
+            }
+            lastAccess = CLOCK.incrementAndGet();
+        }
+
+        /**
+         * Extends the column with closed bars {@code first .. first + count - 1} taken from
+         * {@code src[offset ..]}; {@code lineState} is the state after the last of them.
+         * Bars already published are skipped; a range that does not reach the end is ignored.
+         */
+        void appendRange(int first, double[] src, int offset, int count, double[] lineState) {
+            int last = first + count;
+            if (!reserveCapacity(first, last)) return;
+            lock.lock();
+            try {
+                int start = (end < 0) ? first : end;
+                if (start < first || start >= last) return;
+                if (end < 0) from = first;
+                if (last - from > capacity()) return;
+                int skip = start - first;
+                if (key.floatColumns) {
+                    for (int k = skip; k < count; k++) floatValues[first - from + k] = (float) src[offset + k];
+                } else {
+                    System.arraycopy(src, offset + skip, values, start - from, count - skip);
+                }
+                System.arraycopy(lineState, 0, state, 0, state.length);
+                end = last;
+            } finally {
+                lock.unlock();
+            }
+            lastAccess = CLOCK.incrementAndGet();
+        }
+
+        private int capacity() {
+            return key.floatColumns ? floatValues.length : values.length;
+        }
+
+        /**
+         * Grows the column to hold bars up to {@code last}, where an empty column would
+         * start at {@code first}. The bytes are reserved with no entry lock held, since
+         * reserving may evict (and so lock) other entries. False when over budget.
+         */
+        private boolean reserveCapacity(int first, int last) {
+            while (true) {
+                int length;
+                int grown;
+                lock.lock();
+                try {
+                    length = capacity();
+                    int needed = last - ((end < 0) ? first : from);
+                    if (needed <= length) return true;
+                    grown = Math.max(needed, Math.max(256, length + (length >> 1)));
+                } finally {
+                    lock.unlock();
+                }
+                long delta = (long) (grown - length) * (key.floatColumns ? Float.BYTES : Double.BYTES);
+                if (!reserve(delta)) return false;
+                lock.lock();
+                try {
+                    if (capacity() != length) {
+                        // Grown by another publisher meanwhile: reserve again
+                        TOTAL_BYTES.addAndGet(-delta);
+                        continue;
+                    }
+                    if (key.floatColumns) floatValues = Arrays.copyOf(floatValues, grown);
+                    else values = Arrays.copyOf(values, grown);
+                    bytes += delta;
+                    return true;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // REFERENCE COUNTING
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    private static final int EVICTED = -1;
+
+    /** Returns the shared entry for {@code key}, creating it if needed; pair with {@link #release} */
+    static Entry acquire(Key key) {
+        while (true) {
+            Entry entry = ENTRIES.computeIfAbsent(key, Entry::new);
+            int holders = entry.refCount.get();
+            if (holders == EVICTED) {
+                // Claimed by eviction: help remove it and start a fresh entry
+                ENTRIES.remove(key, entry);
+                continue;
+            }
+            if (entry.refCount.compareAndSet(holders, holders + 1)) {
+                entry.lastAccess = CLOCK.incrementAndGet();
+                return entry;
+            }
+        }
+    }
+
+    static void release(Entry entry) {
+        if (entry == null) return;
+        entry.refCount.decrementAndGet();
+        if (TOTAL_BYTES.get() > maxBytes) evict();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // BUDGET
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    static void setMaxBytes(long bytes) {
+        maxBytes = Math.max(0L, bytes);
+        evict();
+    }
+
+    static long maxBytes() { return maxBytes; }
+
+    static long totalBytes() { return TOTAL_BYTES.get(); }
+
+    /** Drops unreferenced entries, least recently used first, until within budget */
+    private static synchronized void evict() {
+        while (TOTAL_BYTES.get() > maxBytes && evictOne()) {}
+    }
+
+    /** Accounts {@code bytes} more, evicting unreferenced entries for room; false if still over budget */
+    private static synchronized boolean reserve(long bytes) {
+        while (TOTAL_BYTES.get() + bytes > maxBytes) {
+            if (!evictOne()) return false; // everything left is in use
+        }
+        TOTAL_BYTES.addAndGet(bytes);
+        return true;
+    }
+
+    /**
+     * Evicts the least recently used unreferenced entry; false if every entry is in use.
+     * The victim is claimed by swapping its count from 0 to {@code EVICTED}, so a chart
+     * acquiring it at the same time either gets it first (and it stays) or retries with
+     * a fresh entry: no chart ever holds a column that is no longer accounted.
+     */
+    private static boolean evictOne() {
+        Entry victim = null;
+        for (Entry entry : ENTRIES.values()) {
+            if (entry.refCount.get() != 0) continue;
+            if (victim == null || entry.lastAccess < victim.lastAccess) victim = entry;
+        }
+        if (victim == null) return false;
+        // Acquired meanwhile: the caller looks for another victim
+        if (!victim.refCount.compareAndSet(0, EVICTED)) return true;
+        ENTRIES.remove(victim.key, victim);
+        long freed;
+        victim.lock.lock();
+        try {
+            freed = victim.bytes;
+            victim.bytes = 0;
+        } finally {
+            victim.lock.unlock();
+        }
+        TOTAL_BYTES.addAndGet(-freed);
+        return true;
+    }
+}
@@ -0,0 +1,361 @@
+package com.biotak;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Runtime metrics of one study instance
+ * معیارهای اجرایی یک نمونه از استادی (JMX و JFR)
+ *
+ * Counts computed and skipped bars, times the calculation paths per call and
+ * per bar, and reads the settings rebuilds, window restarts and lock waits
+ * the other classes count themselves. Everything is visible through JMX
+ * ({@link StudyMetricsMXBean}) and as JFR events under "Biotak / MTF RSI",
+ * tagged with the chart and its settings so a slow pane can be traced to
+ * its chart, setting and path from a recording.
+ *
+ * Per-bar counting is off unless {@code -Dbiotak.metrics=true} or
+ * {@link #setEnabled} turns it on. Off, and with no JFR recording running, a
+ * bar costs two volatile reads and no clock read. Path events are only
+ * emitted for calls slower than {@code -Dbiotak.metrics.eventThresholdMicros}
+ * (default 1000).
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class StudyMetrics implements StudyMetricsMXBean {
+
+    /** Timed code paths */
+    enum Path { BAR, HISTORY, REPLAY, REWIND, SIGNALS, CHECKPOINT_SAVE }
+
+    private static final String DOMAIN = "com.biotak";
+    private static final AtomicInteger IDS = new AtomicInteger();
+    private static final Path[] PATHS = Path.values();
+    // Null when the runtime has no JFR module: the events are then never created
+    private static final EventType PATH_EVENTS = eventType(PathEvent.class);
+    private static final EventType RESET_EVENTS = eventType(ResetEvent.class);
+    private static final EventType SETTINGS_EVENTS = eventType(SettingsEvent.class);
+    private static final EventType LOCK_EVENTS = eventType(LockWaitEvent.class);
+
+    private final int id = IDS.incrementAndGet();
+    private final SettingsCache settingsCache;
+    private final CalculationState calculationState;
+    private final LongSupplier cacheLockWaitNanos;
+    private volatile boolean enabled = Boolean.getBoolean("biotak.metrics");
+    private volatile long eventThresholdNanos = Long.getLong("biotak.metrics.eventThresholdMicros", 1000L) * 1000L;
+    private volatile String chart = "";
+    private volatile String settings = "";
+    private ObjectName name = null;
+
+    private final LongAdder barsComputed = new LongAdder();
+    private final LongAdder barsSkipped = new LongAdder();
+    private final LongAdder ticksSkipped = new LongAdder();
+    private final LongAdder stateClears = new LongAdder();
+    private final LongAdder coldStarts = new LongAdder();
+    private final LongAdder[] pathCalls = adders();
+    private final LongAdder[] pathBars = adders();
+    private final LongAdder[] pathNanos = adders();
+
+    /** {@code cacheLockWaitNanos} sums the lock waits of the shared-cache entries the study holds */
+    StudyMetrics(SettingsCache settingsCache, CalculationState calculationState, LongSupplier cacheLockWaitNanos) {
+        this.settingsCache = settingsCache;
+        this.calculationState = calculationState;
+        this.cacheLockWaitNanos = cacheLockWaitNanos;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // RECORDING
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** Start of a timed path: the clock, or 0 when neither the counters nor JFR want it */
+    long begin() {
+        return (enabled || recording(PATH_EVENTS)) ? System.nanoTime() : 0L;
+    }
+
+    /** End of a path begun at {@code start} that computed {@code bars} bars */
+    void end(Path path, long start, int bars) {
+        if (start == 0L) return;
+        long nanos = System.nanoTime() - start;
+        if (enabled) {
+            int p = path.ordinal();
+            pathCalls[p].increment();
+            pathBars[p].add(bars);
+            pathNanos[p].add(nanos);
+            if (path == Path.BAR || path == Path.HISTORY) barsComputed.add(bars);
+        }
+        if (nanos >= eventThresholdNanos && recording(PATH_EVENTS)) {
+            var event = new PathEvent();
+            event.chart = chart;
+            event.path = path.name();
+            event.bars = bars;
+            event.elapsed = nanos;
+            event.settings = settings;
+            event.commit();
+        }
+    }
+
+    /** A call turned away before computing: an unchanged tick or a bar {@code shouldCalculate} skipped */
+    void skipped(boolean tick) {
+        if (!enabled) return;
+        (tick ? ticksSkipped : barsSkipped).increment();
+    }
+
+    /** The study dropped its state ({@code clearState}) */
+    void stateCleared() {
+        stateClears.increment();
+        reset("clear state", -1);
+    }
+
+    /** The per-bar engine restarted at {@code index}; {@code rewound} when the series moved back */
+    void coldStart(int index, boolean rewound) {
+        coldStarts.increment();
+        reset(rewound ? "rewind past snapshots" : "cold start", index);
+    }
+
+    private void reset(String reason, int bar) {
+        if (!recording(RESET_EVENTS)) return;
+        var event = new ResetEvent();
+        event.chart = chart;
+        event.reason = reason;
+        event.bar = bar;
+        event.commit();
+    }
+
+    /** The engines were configured for {@code chart} with {@code settings}; registers the MBean on first use */
+    void configure(String chart, SettingsCache.SettingsSnapshot settings) {
+        this.chart = chart;
+        this.settings = describe(settings);
+        register();
+        if (!recording(SETTINGS_EVENTS)) return;
+        var event = new SettingsEvent();
+        event.chart = chart;
+        event.settings = this.settings;
+        event.rebuilds = settingsCache.rebuilds();
+        event.commit();
+    }
+
+    /** Reports a contended lock acquisition of {@code nanos} on lock {@code name} */
+    static void lockWait(String name, long nanos) {
+        if (!recording(LOCK_EVENTS)) return;
+        var event = new LockWaitEvent();
+        event.lock = name;
+        event.waited = nanos;
+        event.commit();
+    }
+
+    static String describe(SettingsCache.SettingsSnapshot settings) {
+        var text = new StringBuilder(160);
+        text.append(settings.rsiMethod).append(" lookback=").append(settings.maxLookback);
+        for (int i = 0; i < SettingsCache.NUM_RSI; i++) {
+            if (!settings.showFlags[i]) continue;
+            text.append(" rsi").append(i + 1).append('=').append(String.format(Locale.ROOT, "%.2f", settings.rsiPeriods[i]));
+            if (settings.timeframes[i] != 0) text.append('@').append(settings.timeframes[i] / 60_000L).append('m');
+            if (settings.prices[i] != AppliedPrice.CLOSE) text.append('/').append(settings.prices[i]);
+            if (settings.normFlags[i]) text.append("/norm");
+        }
+        if (settings.warmupTolerance > 0) text.append(" warmup=").append(settings.warmupTolerance);
+        if (settings.floatCache) text.append(" float");
+        if (settings.checkpoints) text.append(" checkpoints");
+        if (settings.signals) text.append(" signals");
+        return text.toString();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // JMX
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    private synchronized void register() {
+        if (name != null) return;
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=MultiTimeframeRSI,id=" + id);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName)) server.registerMBean(this, objectName);
+            name = objectName;
+        } catch (JMException | SecurityException e) {
+            // Metrics are optional; the study works without the MBean
+        }
+    }
+
+    synchronized void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException | SecurityException e) {
+            // Already gone
+        }
+        name = null;
+    }
+
+    @Override
+    public String getChart() { return chart; }
+
+    @Override
+    public String getSettings() { return settings; }
+
+    @Override
+    public boolean isEnabled() { return enabled; }
+
+    @Override
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    @Override
+    public long getEventThresholdMicros() { return eventThresholdNanos / 1000L; }
+
+    @Override
+    public void setEventThresholdMicros(long micros) { this.eventThresholdNanos = Math.max(0L, micros) * 1000L; }
+
+    @Override
+    public long getBarsComputed() { return barsComputed.sum(); }
+
+    @Override
+    public long getBarsSkipped() { return barsSkipped.sum(); }
+
+    @Override
+    public long getTicksSkipped() { return ticksSkipped.sum(); }
+
+    @Override
+    public long getSettingsRebuilds() { return settingsCache.rebuilds(); }
+
+    @Override
+    public long getLookbackRestarts() { return calculationState.lookbackRestarts(); }
+
+    @Override
+    public long getRewindRestarts() { return calculationState.rewindRestarts(); }
+
+    @Override
+    public long getStateClears() { return stateClears.sum(); }
+
+    @Override
+    public long getColdStarts() { return coldStarts.sum(); }
+
+    @Override
+    public Map<String, Long> getPathCalls() { return sums(pathCalls); }
+
+    @Override
+    public Map<String, Long> getPathBars() { return sums(pathBars); }
+
+    @Override
+    public Map<String, Long> getPathNanos() { return sums(pathNanos); }
+
+    @Override
+    public Map<String, Double> getNanosPerBar() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Path path : PATHS) {
+            int p = path.ordinal();
+            long calls = pathCalls[p].sum();
+            if (calls == 0) continue;
+            long bars = pathBars[p].sum();
+            result.put(path.name(), (double) pathNanos[p].sum() / (bars > 0 ? bars : calls));
+        }
+        return result;
+    }
+
+    @Override
+    public long getSettingsLockWaitNanos() { return settingsCache.lockWaitNanos(); }
+
+    @Override
+    public long getCacheLockWaitNanos() { return cacheLockWaitNanos.getAsLong(); }
+
+    @Override
+    public void resetCounters() {
+        barsComputed.reset();
+        barsSkipped.reset();
+        ticksSkipped.reset();
+        for (Path path : PATHS) {
+            pathCalls[path.ordinal()].reset();
+            pathBars[path.ordinal()].reset();
+            pathNanos[path.ordinal()].reset();
+        }
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[PATHS.length];
+        for (int p = 0; p < adders.length; p++) adders[p] = new LongAdder();
+        return adders;
+    }
+
+    private static Map<String, Long> sums(LongAdder[] adders) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Path path : PATHS) result.put(path.name(), adders[path.ordinal()].sum());
+        return result;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // JFR EVENTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** True while a running recording has events of {@code type} enabled */
+    private static boolean recording(EventType type) {
+        return type != null && type.isEnabled();
+    }
+
+    private static EventType eventType(Class<? extends Event> eventClass) {
+        try {
+            return EventType.getEventType(eventClass);
+        } catch (LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Name("com.biotak.CalculationPath")
+    @Label("RSI Calculation Path")
+    @Description("A calculation path call slower than the study's event threshold")
+    @Category({"Biotak", "MTF RSI"})
+    @StackTrace(false)
+    static final class PathEvent extends Event {
+        @Label("Chart") String chart;
+        @Label("Path") String path;
+        @Label("Bars") int bars;
+        @Label("Elapsed") @Timespan long elapsed;
+        @Label("Settings") String settings;
+    }
+
+    @Name("com.biotak.Reset")
+    @Label("RSI Reset")
+    @Description("The study dropped its state or restarted its engine")
+    @Category({"Biotak", "MTF RSI"})
+    @StackTrace(false)
+    static final class ResetEvent extends Event {
+        @Label("Chart") String chart;
+        @Label("Reason") String reason;
+        @Label("Bar") int bar;
+    }
+
+    @Name("com.biotak.Settings")
+    @Label("RSI Settings Applied")
+    @Description("The engines were configured with new settings")
+    @Category({"Biotak", "MTF RSI"})
+    @StackTrace(false)
+    static final class SettingsEvent extends Event {
+        @Label("Chart") String chart;
+        @Label("Settings") String settings;
+        @Label("Snapshot Rebuilds") long rebuilds;
+    }
+
+    @Name("com.biotak.LockWait")
+    @Label("RSI Lock Wait")
+    @Description("A thread waited for a lock of the study or its shared cache")
+    @Category({"Biotak", "MTF RSI"})
+    static final class LockWaitEvent extends Event {
+        @Label("Lock") String lock;
+        @Label("Wait") @Timespan long waited;
+    }
+}
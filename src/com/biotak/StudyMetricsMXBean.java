@@ -0,0 +1,74 @@
+package com.biotak;
+
+import java.util.Map;
+
+/**
+ * JMX view of one study instance's {@link StudyMetrics}
+ * نمای JMX معیارهای اجرایی یک نمونه از استادی
+ *
+ * Registered as {@code com.biotak:type=MultiTimeframeRSI,id=N}. Counters of
+ * rare events (settings rebuilds, restarts, lock waits) always run; per-bar
+ * counters and path timings only while {@link #isEnabled()}. Path maps are
+ * keyed by {@link StudyMetrics.Path} name; a path's time includes the paths
+ * it calls ({@code BAR} includes a {@code REPLAY} on a cold start).
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+public interface StudyMetricsMXBean {
+
+    /** Instrument and bar size of the chart, empty before the first calculation */
+    String getChart();
+
+    /** The settings the engines were last configured with */
+    String getSettings();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /** Paths slower than this are also recorded as JFR events while a recording is running */
+    long getEventThresholdMicros();
+
+    void setEventThresholdMicros(long micros);
+
+    /** Bars computed per bar or in a history batch */
+    long getBarsComputed();
+
+    /** Calls {@code shouldCalculate} turned away: outside the window or already calculated */
+    long getBarsSkipped();
+
+    /** Live-bar ticks whose prices had not changed */
+    long getTicksSkipped();
+
+    long getSettingsRebuilds();
+
+    /** Window restarts after a lookback change */
+    long getLookbackRestarts();
+
+    /** Window restarts after the series shrank past the calculated range */
+    long getRewindRestarts();
+
+    /** {@code clearState} calls, each dropping every engine and cached state */
+    long getStateClears();
+
+    /** Per-bar engine restarts replayed from the window start or a checkpoint */
+    long getColdStarts();
+
+    Map<String, Long> getPathCalls();
+
+    Map<String, Long> getPathBars();
+
+    Map<String, Long> getPathNanos();
+
+    /** Nanoseconds per bar of each path; per call for paths without bars */
+    Map<String, Double> getNanosPerBar();
+
+    long getSettingsLockWaitNanos();
+
+    /** Waits on the shared-cache columns this chart currently uses, by any chart */
+    long getCacheLockWaitNanos();
+
+    /** Clears the per-bar counters and path timings */
+    void resetCounters();
+}
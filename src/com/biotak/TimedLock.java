@@ -0,0 +1,49 @@
+package com.biotak;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mutex that accounts the time spent waiting for it
+ * قفل با اندازه‌گیری زمان انتظار
+ *
+ * An uncontended {@link #lock()} is one {@code tryLock}, no clock read. Only
+ * when the lock is held by another thread is the wait timed, added to
+ * {@link #waitNanos()} and reported as a {@link StudyMetrics.LockWaitEvent}
+ * when a JFR recording asks for it. Used in place of {@code synchronized}
+ * for the locks the calculation path can block on.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+final class TimedLock {
+
+    private final String name;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder contentions = new LongAdder();
+
+    TimedLock(String name) {
+        this.name = name;
+    }
+
+    void lock() {
+        if (lock.tryLock()) return;
+        long start = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        contentions.increment();
+        StudyMetrics.lockWait(name, waited);
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    /** Total time threads waited to acquire this lock */
+    long waitNanos() { return waitNanos.sum(); }
+
+    /** Acquisitions that had to wait */
+    long contentions() { return contentions.sum(); }
+}
@@ -0,0 +1,185 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BarAggregator against per-bar calendar bucketing
+ * مقایسه ساخت کندل تایم‌فریم بالاتر با گروه‌بندی مستقیم
+ *
+ * The reference derives every base bar's bucket from its zoned date-time and
+ * groups consecutive bars with equal buckets.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class BarAggregatorTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long H4 = 240 * MINUTE;
+    private static final long D1 = 1_440 * MINUTE;
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    /** Base bars: start time and OHLC */
+    record Bars(long[] time, float[] open, float[] high, float[] low, float[] close) {
+        int size() { return time.length; }
+    }
+
+    /** One aggregated bar of the reference */
+    record Bucket(int firstBase, float open, float high, float low, float close) {}
+
+    static Bars bars(long start, long step, int count, long seed) {
+        Random random = new Random(seed);
+        long[] time = new long[count];
+        float[] open = new float[count], high = new float[count], low = new float[count], close = new float[count];
+        long t = start;
+        float price = 100f;
+        for (int i = 0; i < count; i++) {
+            // The odd gap, as over a weekend or a halted session
+            t += (random.nextInt(200) == 0) ? step * (1 + random.nextInt(600)) : step;
+            time[i] = t;
+            open[i] = price;
+            close[i] = price += (float) random.nextGaussian();
+            high[i] = Math.max(open[i], close[i]) + random.nextFloat();
+            low[i] = Math.min(open[i], close[i]) - random.nextFloat();
+        }
+        return new Bars(time, open, high, low, close);
+    }
+
+    /** Bucket start of a bar: whole local days for D1, else steps counted from local midnight */
+    static long bucketStart(long time, long tfMillis, ZoneId zone) {
+        long dayStart = Instant.ofEpochMilli(time).atZone(zone).toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli();
+        if (tfMillis >= D1) return dayStart;
+        return dayStart + (time - dayStart) / tfMillis * tfMillis;
+    }
+
+    static List<Bucket> reference(Bars bars, int count, long tfMillis, ZoneId zone) {
+        List<Bucket> buckets = new ArrayList<>();
+        long key = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            long k = bucketStart(bars.time[i], tfMillis, zone);
+            if (buckets.isEmpty() || k != key) {
+                buckets.add(new Bucket(i, bars.open[i], bars.high[i], bars.low[i], bars.close[i]));
+                key = k;
+            } else {
+                Bucket b = buckets.remove(buckets.size() - 1);
+                buckets.add(new Bucket(b.firstBase, b.open, Math.max(b.high, bars.high[i]),
+                    Math.min(b.low, bars.low[i]), bars.close[i]));
+            }
+        }
+        return buckets;
+    }
+
+    private static void feed(BarAggregator aggregator, Bars bars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            aggregator.update(i, bars.time[i], bars.open[i], bars.high[i], bars.low[i], bars.close[i]);
+        }
+    }
+
+    private static void assertBuckets(List<Bucket> expected, BarAggregator aggregator) {
+        assertEquals(expected.size(), aggregator.size(), "bucket count");
+        for (int k = 0; k < expected.size(); k++) {
+            Bucket b = expected.get(k);
+            assertEquals(b.firstBase, aggregator.firstBaseIndex(k), "first base bar of bucket " + k);
+            assertEquals(b.open, aggregator.opens()[k], "open of bucket " + k);
+            assertEquals(b.high, aggregator.highs()[k], "high of bucket " + k);
+            assertEquals(b.low, aggregator.lows()[k], "low of bucket " + k);
+            assertEquals(b.close, aggregator.closes()[k], "close of bucket " + k);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // TESTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    @Test
+    void utcBucketsMatchReference() {
+        Bars bars = bars(1_700_000_000_000L, 15 * MINUTE, 20_000, 1L);
+        for (long tf : new long[] {15 * MINUTE, H4, D1}) {
+            BarAggregator aggregator = new BarAggregator(tf);
+            feed(aggregator, bars, 0, bars.size());
+            assertBuckets(reference(bars, bars.size(), tf, ZoneOffset.UTC), aggregator);
+        }
+    }
+
+    @Test
+    void sessionBucketsFollowDaylightSaving() {
+        // March to November 2024 covers both New York switches
+        long start = LocalDateTime.of(2024, 3, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        Bars bars = bars(start, 15 * MINUTE, 25_000, 2L);
+        for (long tf : new long[] {H4, D1}) {
+            BarAggregator aggregator = new BarAggregator(tf, BarAggregator.Session.of(NEW_YORK));
+            feed(aggregator, bars, 0, bars.size());
+            assertBuckets(reference(bars, bars.size(), tf, NEW_YORK), aggregator);
+        }
+    }
+
+    @Test
+    void ticksOnlyUpdateTheFormingBucket() {
+        Bars bars = bars(1_700_000_000_000L, MINUTE, 3_000, 3L);
+        Random random = new Random(4L);
+        BarAggregator aggregator = new BarAggregator(H4);
+        for (int i = 0; i < bars.size(); i++) {
+            // Provisional prices first, then the bar's final ones
+            for (int t = random.nextInt(3); t > 0; t--) {
+                float p = bars.close[i] + (float) random.nextGaussian();
+                aggregator.update(i, bars.time[i], bars.open[i], Math.max(p, bars.open[i]), Math.min(p, bars.open[i]), p);
+            }
+            aggregator.update(i, bars.time[i], bars.open[i], bars.high[i], bars.low[i], bars.close[i]);
+        }
+        // Provisional extremes stay in a bucket that already had earlier bars, so only opens and closes are exact
+        List<Bucket> expected = reference(bars, bars.size(), H4, ZoneOffset.UTC);
+        assertEquals(expected.size(), aggregator.size());
+        for (int k = 0; k < expected.size(); k++) {
+            assertEquals(expected.get(k).open, aggregator.opens()[k]);
+            assertEquals(expected.get(k).close, aggregator.closes()[k]);
+        }
+    }
+
+    @Test
+    void truncateThenRefeedMatchesFreshAggregation() {
+        Bars bars = bars(1_700_000_000_000L, 5 * MINUTE, 10_000, 5L);
+        BarAggregator aggregator = new BarAggregator(H4);
+        feed(aggregator, bars, 0, bars.size());
+        int keep = aggregator.indexOfBase(6_000);
+        aggregator.truncate(keep);
+        assertEquals(aggregator.firstBaseIndex(keep) - 1, aggregator.lastBaseIndex());
+        assertBuckets(reference(bars, aggregator.lastBaseIndex() + 1, H4, ZoneOffset.UTC), aggregator);
+        feed(aggregator, bars, aggregator.lastBaseIndex() + 1, bars.size());
+        assertBuckets(reference(bars, bars.size(), H4, ZoneOffset.UTC), aggregator);
+    }
+
+    @Test
+    void indexOfBaseFindsTheHoldingBucket() {
+        Bars bars = bars(1_700_000_000_000L, 15 * MINUTE, 5_000, 6L);
+        BarAggregator aggregator = new BarAggregator(D1);
+        feed(aggregator, bars, 0, 4_000);
+        List<Bucket> expected = reference(bars, 4_000, D1, ZoneOffset.UTC);
+        int k = 0;
+        for (int i = 0; i < 4_000; i++) {
+            while (k + 1 < expected.size() && expected.get(k + 1).firstBase <= i) k++;
+            assertEquals(k, aggregator.indexOfBase(i), "base bar " + i);
+        }
+        assertEquals(-1, aggregator.indexOfBase(4_000));
+        assertEquals(-1, aggregator.indexOfBase(-1));
+    }
+
+    @Test
+    void skippedBaseBarIsRejected() {
+        Bars bars = bars(1_700_000_000_000L, MINUTE, 10, 7L);
+        BarAggregator aggregator = new BarAggregator(H4);
+        feed(aggregator, bars, 0, 5);
+        assertThrows(IllegalStateException.class,
+            () -> aggregator.update(6, bars.time[6], bars.open[6], bars.high[6], bars.low[6], bars.close[6]));
+    }
+}
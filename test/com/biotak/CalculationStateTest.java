@@ -0,0 +1,155 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CalculationState against a set of computed bars
+ * مقایسه وضعیت محاسبه با نگهداری مستقیم کندل‌های محاسبه‌شده
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class CalculationStateTest {
+
+    /**
+     * Naive reference: remembers every bar computed since the window was seeded.
+     * A pass computes the window's bars not computed yet, plus the live bar.
+     */
+    static final class Model {
+        private final TreeSet<Integer> done = new TreeSet<>();
+        private int seed = 0;
+        private int lookback = -1;
+        private int total = 0;
+        int lookbackRestarts = 0;
+        int rewindRestarts = 0;
+
+        List<Integer> pass(int totalBars, int maxLookback) {
+            int windowStart = (maxLookback > 0) ? Math.max(0, totalBars - maxLookback) : 0;
+            if (maxLookback != lookback) {
+                if (lookback >= 0) lookbackRestarts++;
+                restart(windowStart);
+            } else if (totalBars < total) {
+                // Bars from the new live bar on are gone or will change
+                done.tailSet(totalBars - 1).clear();
+                if (windowStart < seed || done.isEmpty()) {
+                    rewindRestarts++;
+                    restart(windowStart);
+                }
+            }
+            lookback = maxLookback;
+            total = totalBars;
+            List<Integer> computed = new ArrayList<>();
+            for (int i = windowStart; i < totalBars; i++) {
+                if (done.add(i) || i == totalBars - 1) computed.add(i);
+            }
+            return computed;
+        }
+
+        private void restart(int windowStart) {
+            seed = windowStart;
+            done.clear();
+        }
+    }
+
+    /** Asks about every bar of the series in order, as a full chart pass does */
+    private static List<Integer> pass(CalculationState state, int totalBars, int maxLookback) {
+        List<Integer> computed = new ArrayList<>();
+        for (int i = 0; i < totalBars; i++) {
+            if (!state.shouldCalculate(i, totalBars, maxLookback)) continue;
+            state.markCalculated(i, totalBars, 0L);
+            computed.add(i);
+        }
+        return computed;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // TESTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    @Test
+    void growTickShrinkAndLookbackChangesMatchReference() {
+        Random random = new Random(1L);
+        int[] lookbacks = {0, 300, 1_000};
+        CalculationState state = new CalculationState();
+        Model model = new Model();
+        int total = 500, lookback = 300;
+        for (int step = 0; step < 3_000; step++) {
+            switch (random.nextInt(10)) {
+                case 0 -> total = Math.max(1, total - 1 - random.nextInt(random.nextBoolean() ? 20 : 800));
+                case 1 -> lookback = lookbacks[random.nextInt(lookbacks.length)];
+                case 2, 3, 4 -> { }
+                default -> total += 1 + random.nextInt(3);
+            }
+            assertEquals(model.pass(total, lookback), pass(state, total, lookback), "step " + step);
+            CalculationState.Snapshot s = state.snapshot();
+            assertEquals(model.seed, s.firstCalculatedIndex(), "seed bar at step " + step);
+            assertEquals(total - 1, s.lastCalculatedIndex(), "last bar at step " + step);
+        }
+        assertEquals(model.lookbackRestarts, state.lookbackRestarts());
+        assertEquals(model.rewindRestarts, state.rewindRestarts());
+        assertTrue(model.rewindRestarts > 0 && model.lookbackRestarts > 0, "scenario covers both restarts");
+    }
+
+    @Test
+    void unchangedTickNeedsTheSameBarAndPrices() {
+        CalculationState state = new CalculationState();
+        long key = CalculationState.priceKey(1.5f);
+        pass(state, 100, 0);
+        state.markCalculated(99, 100, key);
+        assertTrue(state.isUnchangedTick(99, 100, key));
+        assertFalse(state.isUnchangedTick(99, 100, CalculationState.priceKey(1.25f)));
+        assertFalse(state.isUnchangedTick(98, 100, key));
+        // A new bar with the same close is not a repeat of the old live bar
+        state.shouldCalculate(100, 101, 0);
+        assertFalse(state.isUnchangedTick(100, 101, key));
+        state.reset();
+        assertFalse(state.isUnchangedTick(99, 100, key));
+    }
+
+    @Test
+    void priceKeySeesEveryPrice() {
+        long key = CalculationState.priceKey(1f, 2f, 0.5f, 1.5f);
+        assertEquals(key, CalculationState.priceKey(1f, 2f, 0.5f, 1.5f));
+        assertNotEquals(key, CalculationState.priceKey(1.0001f, 2f, 0.5f, 1.5f));
+        assertNotEquals(key, CalculationState.priceKey(1f, 2.0001f, 0.5f, 1.5f));
+        assertNotEquals(key, CalculationState.priceKey(1f, 2f, 0.5001f, 1.5f));
+        assertNotEquals(key, CalculationState.priceKey(1f, 2f, 0.5f, 1.5001f));
+        assertNotEquals(key, CalculationState.priceKey(2f, 1f, 0.5f, 1.5f));
+    }
+
+    @Test
+    void concurrentMarksKeepTheFurthestBar() throws Exception {
+        int bars = 100_000, threads = 8;
+        CalculationState state = new CalculationState();
+        state.shouldCalculate(0, bars, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                tasks.add(pool.submit(() -> {
+                    for (int i = first; i < bars - 1; i += threads) state.markCalculated(i, bars, 0L);
+                }));
+            }
+            for (Future<?> task : tasks) task.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(bars - 2, state.snapshot().lastCalculatedIndex());
+        assertFalse(state.shouldCalculate(bars - 2, bars, 0));
+        assertTrue(state.shouldCalculate(bars - 1, bars, 0));
+    }
+}
@@ -0,0 +1,167 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * CheckpointStore round trips and list upkeep
+ * مقایسه ذخیره و بازیابی نقاط بازگشت با لیست ساده
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class CheckpointStoreTest {
+
+    private static final CheckpointStore.Key KEY = new CheckpointStore.Key(
+        "EUR/USD", "1 Min", RSIEngine.Method.EMA, 14.0, AppliedPrice.CLOSE);
+
+    @TempDir
+    Path dir;
+    private Path previous;
+
+    @BeforeEach
+    void useTempDirectory() {
+        previous = CheckpointStore.directory();
+        CheckpointStore.setDirectory(dir);
+    }
+
+    @AfterEach
+    void restoreDirectory() {
+        CheckpointStore.setDirectory(previous);
+    }
+
+    static List<CheckpointStore.Checkpoint> checkpoints(int count, long seed) {
+        Random random = new Random(seed);
+        List<CheckpointStore.Checkpoint> list = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            double[] state = new double[RSIEngine.lineStateSize()];
+            for (int f = 0; f < state.length; f++) state[f] = (f == 1 && c == 0) ? Double.NaN : random.nextDouble();
+            list.add(new CheckpointStore.Checkpoint(1_000L * (c + 1), random.nextLong(), state));
+        }
+        return list;
+    }
+
+    private static void assertCheckpoints(List<CheckpointStore.Checkpoint> expected, List<CheckpointStore.Checkpoint> actual) {
+        assertEquals(expected.size(), actual.size(), "checkpoint count");
+        for (int c = 0; c < expected.size(); c++) {
+            assertEquals(expected.get(c).barTime(), actual.get(c).barTime());
+            assertEquals(expected.get(c).tailHash(), actual.get(c).tailHash());
+            assertArrayEquals(expected.get(c).state(), actual.get(c).state());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // TESTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    @Test
+    void savedCheckpointsLoadBack() throws IOException {
+        List<CheckpointStore.Checkpoint> saved = checkpoints(5, 1L);
+        CheckpointStore.save(KEY, saved);
+        assertCheckpoints(saved, CheckpointStore.load(KEY));
+    }
+
+    @Test
+    void onlyTheNewestAreKept() throws IOException {
+        List<CheckpointStore.Checkpoint> saved = checkpoints(CheckpointStore.MAX_CHECKPOINTS + 8, 2L);
+        CheckpointStore.save(KEY, saved);
+        assertCheckpoints(saved.subList(8, saved.size()), CheckpointStore.load(KEY));
+    }
+
+    @Test
+    void tailCoversThePeriodAndOneBarMore() {
+        assertEquals(3, CheckpointStore.tailLength(2.0));
+        assertEquals(15, CheckpointStore.tailLength(14.0));
+        assertEquals(16, CheckpointStore.tailLength(14.5));
+    }
+
+    @Test
+    void linesGetTheirOwnFiles() throws IOException {
+        var other = new CheckpointStore.Key(KEY.instrument(), KEY.barSize(), KEY.method(), KEY.period(),
+            AppliedPrice.TYPICAL);
+        assertNotEquals(KEY.fileName(), other.fileName());
+        CheckpointStore.save(KEY, checkpoints(3, 5L));
+        CheckpointStore.save(other, checkpoints(4, 6L));
+        assertEquals(3, CheckpointStore.load(KEY).size());
+        assertEquals(4, CheckpointStore.load(other).size());
+        assertTrue(KEY.fileName().matches("[A-Za-z0-9._-]+"), KEY.fileName());
+    }
+
+    @Test
+    void missingOrDamagedFilesLoadEmpty() throws IOException {
+        assertTrue(CheckpointStore.load(KEY).isEmpty());
+        CheckpointStore.save(KEY, checkpoints(6, 7L));
+        Path file = dir.resolve(KEY.fileName());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertTrue(CheckpointStore.load(KEY).isEmpty());
+        bytes[0] ^= 1;
+        Files.write(file, bytes);
+        assertTrue(CheckpointStore.load(KEY).isEmpty());
+    }
+
+    @Test
+    void backgroundSavesRunInOrder() throws Exception {
+        for (int n = 1; n <= 10; n++) {
+            List<CheckpointStore.Checkpoint> list = checkpoints(n, n);
+            CheckpointStore.submit(() -> {
+                try {
+                    CheckpointStore.save(KEY, list);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        CheckpointStore.awaitSaves();
+        assertCheckpoints(checkpoints(10, 10), CheckpointStore.load(KEY));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "temporary files are cleaned up");
+        }
+    }
+
+    @Test
+    void addMatchesAPlainList() {
+        Random random = new Random(8L);
+        List<CheckpointStore.Checkpoint> list = new ArrayList<>();
+        List<Long> reference = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            long barTime = (random.nextInt(10) == 0) ? random.nextInt(200) : 200L + step;
+            CheckpointStore.add(list, new CheckpointStore.Checkpoint(barTime, 0L, new double[0]));
+            reference.removeIf(t -> t >= barTime);
+            reference.add(barTime);
+            if (reference.size() > CheckpointStore.MAX_CHECKPOINTS) reference.remove(0);
+            assertEquals(reference, list.stream().map(CheckpointStore.Checkpoint::barTime).toList(), "step " + step);
+        }
+    }
+
+    @Test
+    void tailHashSeesEveryField() {
+        long hash = CheckpointStore.mix(0L, 1_000L, 1f, 2f, 0.5f, 1.5f);
+        assertEquals(hash, CheckpointStore.mix(0L, 1_000L, 1f, 2f, 0.5f, 1.5f));
+        assertNotEquals(hash, CheckpointStore.mix(1L, 1_000L, 1f, 2f, 0.5f, 1.5f));
+        assertNotEquals(hash, CheckpointStore.mix(0L, 1_001L, 1f, 2f, 0.5f, 1.5f));
+        assertNotEquals(hash, CheckpointStore.mix(0L, 1_000L, 1.0001f, 2f, 0.5f, 1.5f));
+        assertNotEquals(hash, CheckpointStore.mix(0L, 1_000L, 1f, 2.0001f, 0.5f, 1.5f));
+        assertNotEquals(hash, CheckpointStore.mix(0L, 1_000L, 1f, 2f, 0.5001f, 1.5f));
+        assertNotEquals(hash, CheckpointStore.mix(0L, 1_000L, 1f, 2f, 0.5f, 1.5001f));
+        // Order matters: the same bars in another order hash differently
+        long ab = CheckpointStore.mix(CheckpointStore.mix(0L, 1L, 1f, 1f, 1f, 1f), 2L, 2f, 2f, 2f, 2f);
+        long ba = CheckpointStore.mix(CheckpointStore.mix(0L, 2L, 2f, 2f, 2f, 2f), 1L, 1f, 1f, 1f, 1f);
+        assertNotEquals(ab, ba);
+    }
+}
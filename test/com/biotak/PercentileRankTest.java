@@ -0,0 +1,119 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * PercentileRank against a plain scan of the window
+ * مقایسه رتبه صدکی با شمارش مستقیم پنجره
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class PercentileRankTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    /** Rank of bar {@code index} among the last {@code lookback} bars, counting the window directly */
+    static double reference(double[] values, int index, int lookback) {
+        if (Double.isNaN(values[index])) return Double.NaN;
+        long level = quantize(values[index]);
+        int below = 0, equal = 0, count = 0;
+        for (int i = Math.max(0, index - lookback + 1); i <= index; i++) {
+            if (Double.isNaN(values[i])) continue;
+            long other = quantize(values[i]);
+            if (other < level) below++;
+            else if (other == level) equal++;
+            count++;
+        }
+        return 100.0 * (below + 0.5 * equal) / count;
+    }
+
+    private static long quantize(double value) {
+        return Math.max(0, Math.min(10_000, Math.round(value * 100.0)));
+    }
+
+    /** RSI-like values with repeats, out-of-range values and gaps */
+    static double[] values(int bars, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[bars];
+        double v = 50.0;
+        for (int i = 0; i < bars; i++) {
+            v = Math.max(-5.0, Math.min(105.0, v + random.nextGaussian() * 4.0));
+            values[i] = switch (random.nextInt(40)) {
+                case 0 -> Double.NaN;
+                case 1 -> Math.round(v);
+                default -> v;
+            };
+        }
+        return values;
+    }
+
+    private static void assertRank(double expected, double actual, String where) {
+        if (Double.isNaN(expected)) assertTrue(Double.isNaN(actual), where + ": expected NaN, got " + actual);
+        else assertEquals(expected, actual, TOLERANCE, where);
+    }
+
+    @Test
+    void inOrderMatchesScan() {
+        double[] values = values(5_000, 1L);
+        for (int lookback : new int[] {1, 2, 17, 500}) {
+            PercentileRank rank = new PercentileRank();
+            rank.configure(lookback);
+            for (int i = 0; i < values.length; i++) {
+                assertRank(reference(values, i, lookback), rank.update(i, values[i], j -> values[j]),
+                    "lookback " + lookback + " bar " + i);
+            }
+        }
+    }
+
+    @Test
+    void ticksReplaceTheLastValue() {
+        double[] values = values(3_000, 2L);
+        double[] live = values.clone();
+        Random random = new Random(3L);
+        PercentileRank rank = new PercentileRank();
+        rank.configure(200);
+        for (int i = 0; i < values.length; i++) {
+            for (int t = random.nextInt(3); t > 0; t--) {
+                live[i] = random.nextDouble() * 100.0;
+                assertRank(reference(live, i, 200), rank.update(i, live[i], j -> live[j]), "tick on bar " + i);
+            }
+            live[i] = values[i];
+            assertRank(reference(values, i, 200), rank.update(i, values[i], j -> values[j]), "bar " + i);
+        }
+    }
+
+    @Test
+    void jumpsRebuildFromHistory() {
+        double[] values = values(4_000, 4L);
+        PercentileRank rank = new PercentileRank();
+        rank.configure(300);
+        int[] order = {0, 1, 2, 1_000, 1_001, 999, 3_500, 3_501, 50, 51, 3_999};
+        for (int i : order) {
+            assertRank(reference(values, i, 300), rank.update(i, values[i], j -> values[j]), "bar " + i);
+        }
+    }
+
+    @Test
+    void configureForgetsValues() {
+        PercentileRank rank = new PercentileRank();
+        rank.configure(10);
+        for (int i = 0; i < 10; i++) rank.update(i, 10.0 * i, j -> 10.0 * j);
+        rank.configure(10);
+        assertEquals(50.0, rank.update(0, 30.0, j -> Double.NaN), TOLERANCE);
+    }
+
+    @Test
+    void lookbackIsAtLeastOneBar() {
+        PercentileRank rank = new PercentileRank();
+        rank.configure(0);
+        assertEquals(1, rank.lookback());
+        rank.update(0, 20.0, j -> Double.NaN);
+        assertEquals(50.0, rank.update(1, 80.0, j -> 20.0), TOLERANCE);
+    }
+}
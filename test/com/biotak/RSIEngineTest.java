@@ -0,0 +1,261 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * RSIEngine against the original per-line calculateRSI
+ * مقایسه موتور RSI با پیاده‌سازی اولیه
+ *
+ * {@link #reference} is the study's original {@code calculateRSI}, with the
+ * series' close and average columns replaced by arrays.
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class RSIEngineTest {
+
+    private static final double TOLERANCE = 1e-9;
+    private static final double[] PERIODS = {2.0, 14.0, 14.5, 50.0, 233.0};
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // REFERENCE
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** RSI of every bar from {@code from} on; bars before it are treated as never calculated */
+    static double[] reference(float[] close, double period, RSIEngine.Method method, int from) {
+        double[] rsi = new double[close.length];
+        double[] avgGain = new double[close.length];
+        double[] avgLoss = new double[close.length];
+        Arrays.fill(rsi, Double.NaN);
+        Arrays.fill(avgGain, Double.NaN);
+        Arrays.fill(avgLoss, Double.NaN);
+        for (int index = from; index < close.length; index++) {
+            rsi[index] = calculateRSI(close, index, period, avgGain, avgLoss, method);
+        }
+        return rsi;
+    }
+
+    private static double calculateRSI(float[] close, int index, double period,
+                                       double[] avgGains, double[] avgLosses, RSIEngine.Method method) {
+        if (period < 2.0 || index < 1) return Double.NaN;
+
+        int periodInt = (int) Math.ceil(period);
+        if (index < periodInt) return Double.NaN;
+
+        float currentClose = close[index];
+        float prevClose = close[index - 1];
+        if (Float.isNaN(currentClose) || Float.isNaN(prevClose)) return Double.NaN;
+
+        double change = currentClose - prevClose;
+        double currentGain = (change > 0) ? change : 0.0;
+        double currentLoss = (change < 0) ? -change : 0.0;
+
+        double avgGain, avgLoss;
+        double prevAvgGain = avgGains[index - 1];
+        double prevAvgLoss = avgLosses[index - 1];
+
+        if (Double.isNaN(prevAvgGain) || Double.isNaN(prevAvgLoss) || method == RSIEngine.Method.SMA) {
+            double sumGain = 0.0, sumLoss = 0.0;
+            for (int i = index - periodInt + 1; i <= index; i++) {
+                if (i < 1) continue;
+                if (Float.isNaN(close[i]) || Float.isNaN(close[i - 1])) continue;
+                double chg = close[i] - close[i - 1];
+                if (chg > 0) sumGain += chg;
+                else sumLoss += (-chg);
+            }
+            avgGain = sumGain / period;
+            avgLoss = sumLoss / period;
+        } else if (method == RSIEngine.Method.SMMA) {
+            avgGain = ((prevAvgGain * (period - 1.0)) + currentGain) / period;
+            avgLoss = ((prevAvgLoss * (period - 1.0)) + currentLoss) / period;
+        } else if (method == RSIEngine.Method.WMA) {
+            double wSumGain = 0.0, wSumLoss = 0.0, wSum = 0.0;
+            for (int i = 0; i < periodInt; i++) {
+                int idx = index - periodInt + 1 + i;
+                if (idx < 1) continue;
+                if (Float.isNaN(close[idx]) || Float.isNaN(close[idx - 1])) continue;
+                double w = i + 1;
+                double chg = close[idx] - close[idx - 1];
+                if (chg > 0) wSumGain += chg * w;
+                else wSumLoss += (-chg) * w;
+                wSum += w;
+            }
+            avgGain = wSum > 0 ? wSumGain / wSum : 0;
+            avgLoss = wSum > 0 ? wSumLoss / wSum : 0;
+        } else {
+            double alpha = 1.0 / period;
+            avgGain = (alpha * currentGain) + ((1.0 - alpha) * prevAvgGain);
+            avgLoss = (alpha * currentLoss) + ((1.0 - alpha) * prevAvgLoss);
+        }
+
+        avgGains[index] = avgGain;
+        avgLosses[index] = avgLoss;
+
+        if (avgLoss < 1e-10) return 100.0;
+        double rs = avgGain / avgLoss;
+        return Math.max(0.0, Math.min(100.0, 100.0 - (100.0 / (1.0 + rs))));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // HELPERS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    /** Random walk with flat stretches and the odd missing close */
+    static float[] closes(int bars, long seed) {
+        Random random = new Random(seed);
+        float[] close = new float[bars];
+        double price = 100.0;
+        for (int i = 0; i < bars; i++) {
+            if (random.nextInt(50) != 0) price += random.nextGaussian() * 0.25;
+            close[i] = (random.nextInt(400) == 0) ? Float.NaN : (float) price;
+        }
+        return close;
+    }
+
+    private static RSIEngine engine(RSIEngine.Method method) {
+        RSIEngine engine = new RSIEngine(PERIODS.length);
+        boolean[] enabled = new boolean[PERIODS.length];
+        Arrays.fill(enabled, true);
+        engine.configure(PERIODS, enabled, method);
+        return engine;
+    }
+
+    private static double[][] output(int bars) {
+        double[][] out = new double[PERIODS.length][bars];
+        for (double[] row : out) Arrays.fill(row, -1.0);
+        return out;
+    }
+
+    private static void assertMatches(float[] close, RSIEngine.Method method, int from, double[][] out) {
+        for (int l = 0; l < PERIODS.length; l++) {
+            double[] expected = reference(close, PERIODS[l], method, from);
+            for (int i = from; i < close.length; i++) {
+                double e = expected[i], a = out[l][i];
+                String where = method + " period " + PERIODS[l] + " bar " + i;
+                if (Double.isNaN(e)) assertTrue(Double.isNaN(a), where + ": expected NaN, got " + a);
+                else assertEquals(e, a, TOLERANCE, where);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // TESTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    @ParameterizedTest
+    @EnumSource(RSIEngine.Method.class)
+    void wholeSeriesMatchesReference(RSIEngine.Method method) {
+        float[] close = closes(20_000, 1L);
+        double[][] out = output(close.length);
+        engine(method).compute(close, 0, close.length, out);
+        assertMatches(close, method, 0, out);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RSIEngine.Method.class)
+    void barByBarWithTicksMatchesReference(RSIEngine.Method method) {
+        float[] close = closes(3_000, 2L);
+        float[] live = close.clone();
+        double[][] out = output(close.length);
+        RSIEngine engine = engine(method);
+        for (int i = 0; i < close.length; i++) {
+            // A provisional tick, then the final close of the same bar
+            live[i] = Float.isNaN(close[i]) ? 1.0f : close[i] * 1.01f;
+            engine.compute(live, i, i + 1, null);
+            live[i] = close[i];
+            engine.compute(live, i, i + 1, out);
+        }
+        assertMatches(close, method, 0, out);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RSIEngine.Method.class)
+    void discontinuityReseedsLikeAFreshStart(RSIEngine.Method method) {
+        float[] close = closes(6_000, 3L);
+        RSIEngine engine = engine(method);
+        engine.compute(close, 0, 2_000, null);
+        double[][] out = output(close.length);
+        engine.compute(close, 4_000, close.length, out);
+        assertMatches(close, method, 4_000, out);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RSIEngine.Method.class)
+    void ringSourceMatchesFlatArray(RSIEngine.Method method) {
+        float[] close = closes(10_000, 4L);
+        int mask = 1023;
+        float[] ring = new float[mask + 1];
+        double[][] out = output(close.length);
+        double[][] chunk = new double[PERIODS.length][256];
+        RSIEngine engine = engine(method);
+        for (int from = 0; from < close.length; from += 256) {
+            int to = Math.min(close.length, from + 256);
+            for (int i = from; i < to; i++) ring[i & mask] = close[i];
+            engine.compute(ring, mask, from, to, chunk, from);
+            for (int l = 0; l < PERIODS.length; l++) System.arraycopy(chunk[l], 0, out[l], from, to - from);
+        }
+        assertMatches(close, method, 0, out);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RSIEngine.Method.class)
+    void exportedStateResumesTheRecurrence(RSIEngine.Method method) {
+        float[] close = closes(5_000, 5L);
+        RSIEngine first = engine(method);
+        double[][] full = output(close.length);
+        first.compute(close, 0, close.length, full);
+
+        RSIEngine source = engine(method);
+        source.compute(close, 0, 3_001, null);
+        double[][] states = new double[PERIODS.length][RSIEngine.lineStateSize()];
+        for (int l = 0; l < PERIODS.length; l++) source.exportCommittedState(l, states[l]);
+
+        RSIEngine resumed = engine(method);
+        resumed.importState(close, -1, 2_999, states);
+        double[][] out = output(close.length);
+        resumed.compute(close, 3_000, close.length, out);
+        for (int l = 0; l < PERIODS.length; l++) {
+            for (int i = 3_000; i < close.length; i++) {
+                assertEquals(full[l][i], out[l][i], TOLERANCE, "period " + PERIODS[l] + " bar " + i);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RSIEngine.Method.class, names = {"EMA", "SMMA"})
+    void warmupLandsWithinTolerance(RSIEngine.Method method) {
+        float[] close = closes(14_000, 6L);
+        int window = 12_000;
+        for (double period : PERIODS) {
+            double[] full = reference(close, period, method, 0);
+            for (double tolerance : new double[] {1.0, 0.1, 0.01}) {
+                int bars = RSIEngine.warmupBars(method, period, tolerance);
+                // The smallest k whose seed weight is within the tolerance
+                double decay = 1.0 - 1.0 / period;
+                assertTrue(100.0 * Math.pow(decay, bars) <= tolerance * (1.0 + 1e-12), "k too small");
+                assertTrue(100.0 * Math.pow(decay, bars - 1) > tolerance, "k too large");
+                double[] seeded = reference(close, period, method, window - bars);
+                for (int i = window; i < close.length; i++) {
+                    if (Double.isNaN(full[i])) continue;
+                    assertEquals(full[i], seeded[i], tolerance, method + " period " + period + " tolerance " + tolerance + " bar " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void exactMethodsNeedNoWarmup() {
+        assertEquals(0, RSIEngine.warmupBars(RSIEngine.Method.SMA, 14.0, 0.01));
+        assertEquals(1, RSIEngine.warmupBars(RSIEngine.Method.WMA, 14.0, 0.01));
+        assertEquals(0, RSIEngine.warmupBars(RSIEngine.Method.EMA, 14.0, 0.0));
+        assertEquals(0, RSIEngine.warmupBars(RSIEngine.Method.EMA, 14.0, 100.0));
+    }
+}
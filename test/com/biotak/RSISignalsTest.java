@@ -0,0 +1,169 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * RSISignals against a direct comparison of consecutive closed values
+ * مقایسه سیگنال‌ها با مقایسه مستقیم مقادیر بسته‌شده
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class RSISignalsTest {
+
+    private static final double OVERBOUGHT = 70.0;
+    private static final double OVERSOLD = 30.0;
+    private static final double MIDLINE = 50.0;
+
+    /**
+     * Naive reference: each line's last closed value is compared with its new one,
+     * and alignment is re-checked from all last closed values on every bar.
+     * {@code closes[l]} is how many bars line {@code l} spans.
+     */
+    static long[] reference(double[][] values, boolean[] lines, int[] closes,
+                            boolean crosses, boolean midlineCrosses, boolean alignment) {
+        int numLines = lines.length, bars = values[0].length;
+        long[] events = new long[bars];
+        double[] last = new double[numLines];
+        Arrays.fill(last, Double.NaN);
+        boolean[] wasAligned = new boolean[RSISignals.ALIGNED_EVENTS];
+        for (int i = 0; i < bars; i++) {
+            long e = 0L;
+            for (int l = 0; l < numLines; l++) {
+                if (!lines[l] || (i > 0 && (i + 1) % closes[l] != 0)) continue;
+                double previous = last[l], value = values[l][i];
+                last[l] = value;
+                if (i == 0 || Double.isNaN(previous) || Double.isNaN(value)) continue;
+                if (crosses && previous <= OVERBOUGHT && value > OVERBOUGHT) e |= RSISignals.lineEvent(l, RSISignals.OVERBOUGHT_ENTER);
+                if (crosses && previous > OVERBOUGHT && value <= OVERBOUGHT) e |= RSISignals.lineEvent(l, RSISignals.OVERBOUGHT_EXIT);
+                if (crosses && previous > OVERSOLD && value <= OVERSOLD) e |= RSISignals.lineEvent(l, RSISignals.OVERSOLD_ENTER);
+                if (crosses && previous <= OVERSOLD && value > OVERSOLD) e |= RSISignals.lineEvent(l, RSISignals.OVERSOLD_EXIT);
+                if (midlineCrosses && previous <= MIDLINE && value > MIDLINE) e |= RSISignals.lineEvent(l, RSISignals.MIDLINE_UP);
+                if (midlineCrosses && previous > MIDLINE && value <= MIDLINE) e |= RSISignals.lineEvent(l, RSISignals.MIDLINE_DOWN);
+            }
+            boolean[] aligned = {true, true, true, true};
+            for (int l = 0; l < numLines; l++) {
+                if (!lines[l]) continue;
+                double v = last[l];
+                aligned[RSISignals.ALIGNED_OVERBOUGHT] &= v > OVERBOUGHT;
+                aligned[RSISignals.ALIGNED_OVERSOLD] &= v <= OVERSOLD;
+                aligned[RSISignals.ALIGNED_BULLISH] &= v > MIDLINE;
+                aligned[RSISignals.ALIGNED_BEARISH] &= v <= MIDLINE;
+                if (Double.isNaN(v)) Arrays.fill(aligned, false);
+            }
+            for (int k = 0; k < RSISignals.ALIGNED_EVENTS; k++) {
+                if (i > 0 && alignment && aligned[k] && !wasAligned[k]) e |= RSISignals.alignedEvent(k);
+                wasAligned[k] = aligned[k];
+            }
+            events[i] = e;
+        }
+        return events;
+    }
+
+    /** Random walks around the midline that keep crossing every level, with the odd gap */
+    static double[][] values(int numLines, int bars, long seed) {
+        Random random = new Random(seed);
+        double[][] values = new double[numLines][bars];
+        for (int l = 0; l < numLines; l++) {
+            double v = 50.0;
+            for (int i = 0; i < bars; i++) {
+                v = Math.max(0.0, Math.min(100.0, v + random.nextGaussian() * 6.0));
+                // Exact level values must count as below the level
+                if (random.nextInt(30) == 0) v = new double[] {OVERSOLD, MIDLINE, OVERBOUGHT}[random.nextInt(3)];
+                values[l][i] = (random.nextInt(300) == 0) ? Double.NaN : v;
+            }
+        }
+        return values;
+    }
+
+    private static long[] run(RSISignals signals, double[][] values, int[] closes) {
+        int numLines = values.length, bars = values[0].length;
+        long[] events = new long[bars];
+        double[] bar = new double[numLines];
+        for (int i = 0; i < bars; i++) {
+            // Lines that span several bars pass their forming values, which must be ignored
+            int closing = 0;
+            for (int l = 0; l < numLines; l++) {
+                if ((i + 1) % closes[l] == 0) closing |= 1 << l;
+                bar[l] = values[l][i];
+            }
+            if (i == 0) signals.prime(i, bar);
+            else events[i] = signals.update(i, bar, closing);
+        }
+        return events;
+    }
+
+    private static void assertEvents(long[] expected, long[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Long.toBinaryString(expected[i]), Long.toBinaryString(actual[i]), "bar " + i);
+        }
+    }
+
+    private static RSISignals signals(boolean[] lines, boolean crosses, boolean midlineCrosses, boolean alignment) {
+        RSISignals signals = new RSISignals(lines.length);
+        signals.configure(lines, OVERBOUGHT, OVERSOLD, MIDLINE, crosses, midlineCrosses, alignment);
+        return signals;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // TESTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    @Test
+    void everyEventMatchesReference() {
+        boolean[] lines = {true, true, true};
+        int[] closes = {1, 1, 1};
+        double[][] values = values(3, 20_000, 1L);
+        long[] expected = reference(values, lines, closes, true, true, true);
+        assertEvents(expected, run(signals(lines, true, true, true), values, closes));
+    }
+
+    @Test
+    void higherTimeframeLinesOnlyMoveWhenTheyClose() {
+        boolean[] lines = {true, true, false, true};
+        int[] closes = {1, 4, 1, 15};
+        double[][] values = values(4, 20_000, 2L);
+        long[] expected = reference(values, lines, closes, true, true, true);
+        assertEvents(expected, run(signals(lines, true, true, true), values, closes));
+    }
+
+    @Test
+    void disabledKindsAreMasked() {
+        boolean[] lines = {true, true};
+        int[] closes = {1, 1};
+        double[][] values = values(2, 10_000, 3L);
+        for (int mask = 0; mask < 8; mask++) {
+            boolean crosses = (mask & 1) != 0, midline = (mask & 2) != 0, alignment = (mask & 4) != 0;
+            long[] expected = reference(values, lines, closes, crosses, midline, alignment);
+            assertEvents(expected, run(signals(lines, crosses, midline, alignment), values, closes));
+        }
+    }
+
+    @Test
+    void alignmentReportsTheStrongestState() {
+        RSISignals signals = signals(new boolean[] {true, true}, true, true, true);
+        signals.prime(0, new double[] {90.0, 85.0});
+        assertEquals(2, signals.alignment());
+        signals.update(1, new double[] {60.0, 85.0}, 0b11);
+        assertEquals(1, signals.alignment());
+        signals.update(2, new double[] {60.0, 40.0}, 0b11);
+        assertEquals(0, signals.alignment());
+        signals.update(3, new double[] {10.0, 40.0}, 0b11);
+        assertEquals(-1, signals.alignment());
+        signals.update(4, new double[] {10.0, Double.NaN}, 0b11);
+        assertEquals(0, signals.alignment());
+        signals.update(5, new double[] {10.0, 30.0}, 0b11);
+        assertEquals(-2, signals.alignment());
+    }
+
+    @Test
+    void tooManyLinesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RSISignals(RSISignals.MAX_LINES + 1));
+    }
+}
@@ -0,0 +1,148 @@
+package com.biotak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SharedRSICache budget accounting and range copies
+ * حساب بودجه حافظه و کپی بازه‌ای کش مشترک
+ *
+ * @author Biotak Development Team
+ * @version 1.0.0
+ */
+class SharedRSICacheTest {
+
+    private static final double[] STATE = new double[RSIEngine.lineStateSize()];
+    private long previous;
+
+    @BeforeEach
+    void emptyCache() {
+        previous = SharedRSICache.maxBytes();
+        SharedRSICache.setMaxBytes(0L);
+    }
+
+    @AfterEach
+    void restoreBudget() {
+        SharedRSICache.setMaxBytes(0L);
+        SharedRSICache.setMaxBytes(previous);
+    }
+
+    private static SharedRSICache.Key key(String instrument, boolean floatColumns) {
+        return new SharedRSICache.Key(instrument, "1 Min", 0L, 0L, RSIEngine.Method.EMA, 14.0,
+            AppliedPrice.CLOSE, floatColumns);
+    }
+
+    private static void fill(SharedRSICache.Entry entry, int bars) {
+        double[] values = new double[bars];
+        for (int i = 0; i < bars; i++) values[i] = i * 0.01;
+        entry.appendRange(0, values, 0, bars, STATE);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════════
+    // TESTS
+    // ═══════════════════════════════════════════════════════════════════════════
+
+    @Test
+    void copyRangeMatchesPerBarReads() {
+        SharedRSICache.setMaxBytes(1L << 20);
+        for (boolean floatColumns : new boolean[] {false, true}) {
+            SharedRSICache.Entry entry = SharedRSICache.acquire(key("COPY", floatColumns));
+            fill(entry, 1_000);
+            double[] dst = new double[300];
+            entry.copyRange(800, 300, dst);
+            for (int k = 0; k < 200; k++) assertEquals(entry.value(800 + k), dst[k], "bar " + (800 + k));
+            // Past the end of the column
+            for (int k = 200; k < 300; k++) assertTrue(Double.isNaN(dst[k]));
+            SharedRSICache.release(entry);
+        }
+    }
+
+    @Test
+    void releasedEntriesStayCountedUntilEvicted() {
+        SharedRSICache.setMaxBytes(64L * 1024);
+        SharedRSICache.Entry first = SharedRSICache.acquire(key("A", false));
+        fill(first, 2_000);
+        long used = SharedRSICache.totalBytes();
+        assertTrue(used >= 2_000L * Double.BYTES, "bytes " + used);
+        SharedRSICache.release(first);
+        assertEquals(used, SharedRSICache.totalBytes(), "an unreferenced column is still accounted");
+        // Reacquired before eviction: the same column comes back
+        SharedRSICache.Entry again = SharedRSICache.acquire(key("A", false));
+        assertSame(first, again);
+        assertEquals(2_000, again.end());
+        SharedRSICache.release(again);
+
+        // A column in use needs room: the released one goes first
+        SharedRSICache.Entry second = SharedRSICache.acquire(key("B", false));
+        fill(second, 7_000);
+        assertEquals(7_000, second.end());
+        assertTrue(SharedRSICache.totalBytes() <= SharedRSICache.maxBytes());
+        SharedRSICache.Entry fresh = SharedRSICache.acquire(key("A", false));
+        assertNotSame(first, fresh);
+        assertEquals(-1, fresh.end());
+        SharedRSICache.release(fresh);
+        SharedRSICache.release(second);
+    }
+
+    @Test
+    void columnsInUseAreNeverEvicted() {
+        SharedRSICache.setMaxBytes(32L * 1024);
+        SharedRSICache.Entry held = SharedRSICache.acquire(key("HELD", false));
+        fill(held, 3_000);
+        SharedRSICache.Entry other = SharedRSICache.acquire(key("OTHER", false));
+        fill(other, 3_000);
+        // No room and nothing to evict: the second column stops growing
+        assertEquals(3_000, held.end());
+        assertEquals(-1, other.end());
+        assertTrue(SharedRSICache.totalBytes() <= SharedRSICache.maxBytes());
+        SharedRSICache.release(other);
+        SharedRSICache.release(held);
+    }
+
+    @Test
+    void racingAcquiresAndEvictionsKeepTheBudget() throws Exception {
+        long budget = 48L * 1024;
+        SharedRSICache.setMaxBytes(budget);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                tasks.add(pool.submit(() -> {
+                    for (int round = 0; round < 2_000; round++) {
+                        var key = key("K" + ((round + thread) % 7), round % 2 == 0);
+                        SharedRSICache.Entry entry = SharedRSICache.acquire(key);
+                        int bars = 512 + (round % 5) * 512;
+                        if (entry.end() < 0) fill(entry, bars);
+                        else entry.append(entry.end(), 50.0, STATE);
+                        // A held column is never evicted from under its holder
+                        SharedRSICache.Entry same = SharedRSICache.acquire(key);
+                        assertSame(entry, same);
+                        SharedRSICache.release(same);
+                        SharedRSICache.release(entry);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) task.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(SharedRSICache.totalBytes() <= budget, "bytes " + SharedRSICache.totalBytes());
+        // With nothing held, dropping the budget frees every column
+        SharedRSICache.setMaxBytes(0L);
+        assertEquals(0L, SharedRSICache.totalBytes());
+    }
+}